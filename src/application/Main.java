@@ -3,6 +3,7 @@ package application;
 import java.util.Optional;
 import java.util.ResourceBundle;
 
+import de.tum.bio.proteomics.PeptideId;
 import de.tum.bio.proteomics.ProteinGroup;
 import de.tum.bio.proteomics.analysis.AnalysisHandler;
 import javafx.application.Application;
@@ -104,4 +105,8 @@ public class Main extends Application {
 	public TableView<ProteinGroup> getProteinGroupsTableView() {
 		return controller.getProteinGroupsTableView();
 	}
+	
+	public void refreshTables(PeptideId peptideId) {
+		controller.refreshTables(peptideId);
+	}
 }
\ No newline at end of file
@@ -39,6 +39,7 @@ import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.ScatterChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
@@ -91,6 +92,12 @@ public class MainController {
 	MenuItem menuItemOpenFasta;
 	@FXML
 	MenuItem menuItemOpenMzIdentML;
+	@FXML
+	CheckMenuItem menuItemLazyEvidence;
+	@FXML
+	CheckMenuItem menuItemIndexedFasta;
+	@FXML
+	CheckMenuItem menuItemTableCache;
 	
 	@FXML
 	ImageView logoView;
@@ -176,6 +183,16 @@ public class MainController {
 	                            }
 	                        });
 	                        contextMenu.getItems().addAll(menuItem);
+	                        // Only identifications read from a MaxQuant txt directory can be refreshed
+	                        if (item.getAnalysisComponentType() == AnalysisComponentType.PeptideId && isRefreshable(item)) {
+	                            MenuItem refreshMenuItem = new MenuItem("Refresh");
+	                            refreshMenuItem.setOnAction(new EventHandler<ActionEvent>() {
+	                                public void handle(ActionEvent e) {
+	                                    analysisHandler.refreshItem(item.getAnalysisId(), item.getItemId(), mainApp);
+	                                }
+	                            });
+	                            contextMenu.getItems().add(refreshMenuItem);
+	                        }
 	                        setContextMenu(contextMenu);
 
 	                    } else {
@@ -382,6 +399,12 @@ public class MainController {
 		} 
 	}
 	
+	public void handleLoadingOptions(ActionEvent event) {
+		analysisHandler.setLazyEvidenceLoading(menuItemLazyEvidence.isSelected());
+		analysisHandler.setIndexedFastaLoading(menuItemIndexedFasta.isSelected());
+		analysisHandler.setTableCaching(menuItemTableCache.isSelected());
+	}
+	
 	public void handleCombineSequencesAndProteinGroups(ActionEvent event) {
 		PeptideId peptideId = null;
 		FastaFile fastaFile = null;
@@ -424,6 +447,22 @@ public class MainController {
 		tableProteinGroups.scrollTo(proteinGroup);
 	}
 	
+	/**
+	 * Shows the protein groups and peptides of an identification again if it is shown, e.g. after it was refreshed.
+	 * The tables hold copies of the lists, so they would keep showing replaced objects otherwise.
+	 * @param peptideId
+	 */
+	public void refreshTables(PeptideId peptideId) {
+		Analysis analysis = analysisHandler.getAnalysis(shownAnalysisId.get());
+		if (analysis == null || analysis.getPeptideId(shownPeptideIdId.get()) != peptideId) {
+			return;
+		}
+		tablePeptides.setItems(null);
+		tableProteinGroups.setItems(FXCollections.observableArrayList(peptideId.getAllProteinGroups().values()));
+		updateVolcanoPlot(peptideId);
+		selectProteinGroup(peptideId.getSelectedProteinGroup());
+	}
+	
 	private void updateVolcanoPlot(PeptideId peptideId) {
 		if (volcanoPlot.getData() != null) {
 			volcanoPlot.getData().clear();
@@ -460,6 +499,15 @@ public class MainController {
 		}
 		return id;
 	}
+
+	private boolean isRefreshable(AnalysisTreeObject item) {
+		Analysis analysis = analysisHandler.getAnalysis(item.getAnalysisId());
+		if (analysis == null) {
+			return false;
+		}
+		PeptideId peptideId = analysis.getPeptideId(item.getItemId());
+		return peptideId != null && peptideId.getSourceDirectory() != null;
+	}
 	
 	private void updateSequenceView() {
 		if (sequenceViewer != null) {
@@ -1,9 +1,10 @@
 package de.tum.bio.proteomics;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import de.tum.bio.proteomics.tools.Toolbox;
 import javafx.beans.property.IntegerProperty;
@@ -13,15 +14,20 @@ import javafx.beans.property.StringProperty;
 
 /**
  * This class represents a general amino acid sequence.
+ * The residues are stored packed, amino acid objects are only created for positions that are requested,
+ * e.g. to carry modifications.
  * @author Matthias Stahl
  *
  */
 
 public abstract class AminoAcidSequence {
 	
-	private StringProperty stringSequence = new SimpleStringProperty();
+	private PackedSequence sequence;
+	// Created on request, e.g. by table cells, so that sequences are not held as Strings as well
+	private StringProperty stringSequence;
 	private IntegerProperty length = new SimpleIntegerProperty();
-	private List<AminoAcid> listSequence;
+	// Requested amino acids by position
+	private Map<Integer, AminoAcid> aminoAcids;
 
 	public AminoAcidSequence() {
 		// Empty constructor
@@ -36,36 +42,85 @@ public abstract class AminoAcidSequence {
 	}
 	
 	public String getSequenceAsString() {
-		return stringSequence.get();
+		return sequence == null ? null : sequence.toString();
+	}
+	
+	public PackedSequence getSequence() {
+		return sequence;
 	}
 	
 	public void setSequenceString(String sequence) {
-		this.stringSequence.set(sequence);
+		setSequence(PackedSequence.of(sequence));
+	}
+	
+	public void setSequence(PackedSequence sequence) {
+		this.sequence = sequence;
 		length.set(sequence.length());
-		listSequence = generateSequenceListFromString(sequence);
+		aminoAcids = null;
+		if (stringSequence != null) {
+			stringSequence.set(sequence.toString());
+		}
 	}
 	
 	public StringProperty sequenceProperty() {
+		if (stringSequence == null) {
+			stringSequence = new SimpleStringProperty(getSequenceAsString());
+		}
 		return stringSequence;
 	}
 	
+	/**
+	 * Gets the sequence as list of amino acids. The list is a view that creates the amino acids on access.
+	 * @return amino acids
+	 */
 	public List<AminoAcid> getSequenceAsList() {
-		return listSequence;
+		if (sequence == null) {
+			return null;
+		}
+		return new AbstractList<AminoAcid>() {
+			@Override
+			public AminoAcid get(int index) {
+				return getAminoAcidAtPosition(index + 1);
+			}
+			
+			@Override
+			public int size() {
+				return sequence.length();
+			}
+		};
 	}
 	
 	public void setSequenceList(List<AminoAcid> sequence) {
-		this.listSequence = sequence;
-		stringSequence.set(generateSequenceStringFromList(sequence));
-		length.set(stringSequence.get().length());
+		StringBuilder tmp = new StringBuilder();
+		for (AminoAcid letter : sequence) {
+			tmp.append(letter.getSingleLetterCode());
+		}
+		setSequence(PackedSequence.of(tmp));
+		// Keep the given amino acids with their modifications
+		aminoAcids = new HashMap<>();
+		for (int position = 1; position <= sequence.size(); position++) {
+			aminoAcids.put(position, sequence.get(position - 1));
+		}
 	}
 	
 	public AminoAcid getAminoAcidAtPosition(int position) {
-		return listSequence.get(position-1);
+		if (sequence == null || position < 1 || position > sequence.length()) {
+			throw new IndexOutOfBoundsException("Position: " + position + ", Length: " + getLength());
+		}
+		if (aminoAcids == null) {
+			aminoAcids = new HashMap<>();
+		}
+		AminoAcid aminoAcid = aminoAcids.get(position);
+		if (aminoAcid == null) {
+			aminoAcid = new AminoAcid(sequence.charAt(position - 1));
+			aminoAcids.put(position, aminoAcid);
+		}
+		return aminoAcid;
 	}
 	
 	public char getAminoAcidAsSingleLetterAtPosition(int position) {
-		if (position-1 < listSequence.size()) {
-			return listSequence.get(position-1).getSingleLetterCode();
+		if (position-1 < sequence.length()) {
+			return Character.toUpperCase(sequence.charAt(position - 1));
 		}
 		return "X".charAt(0);
 	}
@@ -80,7 +135,7 @@ public abstract class AminoAcidSequence {
 	
 	public void assignModificationToAminoAcid(Modification modification, int position) {
 		// Calculate real position
-		List<List<Integer>> indices = Toolbox.simpleMap(stringSequence.get(), modification.getSequenceWindow());
+		List<List<Integer>> indices = Toolbox.simpleMap(getSequenceAsString(), modification.getSequenceWindow());
 		for (List<Integer> index : indices) {
 			getAminoAcidAtPosition(position - index.get(0) + 1).setModification(modification);
 		}
@@ -92,30 +147,13 @@ public abstract class AminoAcidSequence {
 	
 	public Map<Integer, Modification> getModifications() {
 		Map<Integer, Modification> result = new HashMap<>();
-		for (AminoAcid aminoAcid : listSequence) {
-			if (aminoAcid.getModifications().size() > 0) {
-				for (Modification modification : aminoAcid.getModifications()) {
-					result.put(listSequence.indexOf(aminoAcid) + 1, modification);
+		if (aminoAcids != null) {
+			for (Entry<Integer, AminoAcid> entry : aminoAcids.entrySet()) {
+				for (Modification modification : entry.getValue().getModifications()) {
+					result.put(entry.getKey(), modification);
 				}
 			}
 		}
 		return result;
 	}
-	
-	private String generateSequenceStringFromList(List<AminoAcid> listSequence) {
-		StringBuilder tmp = new StringBuilder();
-		for (AminoAcid letter : listSequence) {
-			tmp.append(String.valueOf(letter.getSingleLetterCode()));
-		}
-		return tmp.toString();
-	}
-	
-	private List<AminoAcid> generateSequenceListFromString(String stringSequence) {
-		listSequence = new ArrayList<AminoAcid>();
-		final int length = stringSequence.length();
-		for (int i = 0; i < length; i++) {
-			listSequence.add(new AminoAcid(stringSequence.charAt(i)));
-		}
-		return listSequence;
-	}
 }
@@ -24,6 +24,28 @@ public class AnalysisSummary implements AnalysisComponent {
 		Collections.sort(rawFiles, new AlphanumComparator<RawFile>());
 	}
 	
+	private AnalysisSummary() {
+		// empty
+	}
+	
+	/**
+	 * Creates a summary of raw files that were read without an intermediate property map.
+	 * Raw files without experiment, like the total row of the summary table, are skipped.
+	 * @param rawFiles
+	 * @return summary
+	 */
+	public static AnalysisSummary fromRawFiles(List<RawFile> rawFiles) {
+		AnalysisSummary summary = new AnalysisSummary();
+		for (RawFile rawFile : rawFiles) {
+			if (rawFile.getExperimentName().length() > 0) {
+				summary.rawFiles.add(rawFile);
+			}
+		}
+		
+		Collections.sort(summary.rawFiles, new AlphanumComparator<RawFile>());
+		return summary;
+	}
+	
 	public List<String> getRawFileNames() {
 		List<String> rawFileNames = new ArrayList<>();
 		
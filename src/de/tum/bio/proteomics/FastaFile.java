@@ -1,12 +1,16 @@
 package de.tum.bio.proteomics;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 
 import de.tum.bio.proteomics.analysis.AnalysisComponent;
 import de.tum.bio.proteomics.io.fasta.FastaFileReader.DatabaseType;
+import de.tum.bio.proteomics.io.fasta.FastaIndex;
 
 /**
  * This class represents a parsed fasta file.
+ * Sequences are either held in memory or read on request from an indexed database.
  * @author Matthias Stahl
  *
  */
@@ -15,25 +19,37 @@ public class FastaFile implements AnalysisComponent {
 	
 	private int id;
 	private String name;
-	private Map<String, String> idsAndSequences;
-	private Map<String, String> headersAndSequences;
+	private Map<String, PackedSequence> idsAndSequences;
+	private Map<String, PackedSequence> headersAndSequences;
 	private DatabaseType databaseType;
+	private FastaIndex fastaIndex;
 	
 	public FastaFile(int id) {
 		this(null, null, null, id, null);
 	}
 	
-	public FastaFile(Map<String, String> idsAndSequences, DatabaseType databaseType, int id, String name) {
+	public FastaFile(Map<String, PackedSequence> idsAndSequences, DatabaseType databaseType, int id, String name) {
 		this(idsAndSequences, null, databaseType, id, name);
 	}
 	
-	public FastaFile(Map<String, String> idsAndSequences, Map<String, String> headersAndSequences, DatabaseType databaseType, int id, String name) {
+	public FastaFile(Map<String, PackedSequence> idsAndSequences, Map<String, PackedSequence> headersAndSequences, DatabaseType databaseType, int id, String name) {
 		this.idsAndSequences = idsAndSequences;
 		this.headersAndSequences = headersAndSequences;
 		this.databaseType = databaseType;
 		this.id = id;
 		this.name = "Fasta: " + name;
 	}
+	
+	/**
+	 * Creates a fasta file whose sequences are read from the database on request.
+	 * @param fastaIndex
+	 * @param id
+	 * @param name
+	 */
+	public FastaFile(FastaIndex fastaIndex, int id, String name) {
+		this(null, null, fastaIndex.getDatabaseType(), id, name);
+		this.fastaIndex = fastaIndex;
+	}
 
 	public int getId() {
 		return id;
@@ -43,14 +59,37 @@ public class FastaFile implements AnalysisComponent {
 		this.id = id;
 	}
 	
-	public String getSequenceById(String id) {
+	public PackedSequence getSequenceById(String id) {
+		if (fastaIndex != null) {
+			return fastaIndex.getSequence(id);
+		}
 		return idsAndSequences.get(id);
 	}
 	
-	public String getSequenceByHeader(String header) {
+	public PackedSequence getSequenceByHeader(String header) {
+		if (fastaIndex != null) {
+			return fastaIndex.getSequenceByHeader(header);
+		}
 		return headersAndSequences.get(header);
 	}
 	
+	/**
+	 * @return accessions of the database
+	 */
+	public Collection<String> getIds() {
+		if (fastaIndex != null) {
+			return fastaIndex.getIds();
+		}
+		if (idsAndSequences == null) {
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(idsAndSequences.keySet());
+	}
+	
+	public boolean isIndexed() {
+		return fastaIndex != null;
+	}
+	
 	public DatabaseType getDatabaseType() {
 		return databaseType;
 	}
@@ -10,10 +10,33 @@ public class Feature implements AnalysisComponent {
 	private String id;
 	private long intensity = 0;
 	private String experiment;
+	private int experimentCode = -1;
 	private int numberOfDataPoints = 0;
 	private int peptideId;
 	private int modPeptideId;
 	
+	public Feature(String id, long intensity, String experiment, int numberOfDataPoints, int peptideId, int modPeptideId) {
+		this(id, intensity, experiment, -1, numberOfDataPoints, peptideId, modPeptideId);
+	}
+	
+	/**
+	 * @param id
+	 * @param intensity
+	 * @param experiment pooled experiment name
+	 * @param experimentCode code of the experiment name in the StringPool of the PeptideId
+	 * @param numberOfDataPoints
+	 * @param peptideId
+	 * @param modPeptideId
+	 */
+	public Feature(String id, long intensity, String experiment, int experimentCode, int numberOfDataPoints, int peptideId, int modPeptideId) {
+		this.id = id;
+		this.intensity = intensity;
+		this.experiment = experiment;
+		this.experimentCode = experimentCode;
+		this.numberOfDataPoints = numberOfDataPoints;
+		this.peptideId = peptideId;
+		this.modPeptideId = modPeptideId;
+	}
 
 	public Feature(Map<EvidenceTableHeaders, String> evidences) {
 		id = evidences.get(EvidenceTableHeaders.ID);
@@ -44,6 +67,14 @@ public class Feature implements AnalysisComponent {
 		return experiment;
 	}
 	
+	/**
+	 * Gets the code of the experiment in the StringPool of the PeptideId.
+	 * @return code or -1 if the Feature was not created from a pooled load
+	 */
+	public int getExperimentCode() {
+		return experimentCode;
+	}
+	
 	public int getNumberOfDataPoints() {
 		return numberOfDataPoints;
 	}
@@ -0,0 +1,22 @@
+package de.tum.bio.proteomics;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Source of the features of peptides that are not held in memory, e.g. an index into an evidence table.
+ *
+ */
+
+public interface FeatureProvider {
+
+	/**
+	 * Gets the features of some peptides, decoding them if necessary.
+	 * @param peptides
+	 * @return features by peptide ID, peptides without features are missing
+	 * @throws IOException
+	 */
+	Map<String, List<Feature>> getFeatures(Collection<Peptide> peptides) throws IOException;
+}
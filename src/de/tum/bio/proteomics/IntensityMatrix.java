@@ -0,0 +1,152 @@
+package de.tum.bio.proteomics;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense matrix of intensities by peptide and experiment.
+ * Rows are peptide ordinals of a PeptideId, columns are experiments. All cells are stored row by row in a single
+ * long array, so sums and maxima over peptides run over contiguous memory instead of per-peptide maps.
+ * Cells without any feature are 0 and can be told apart from measured zeros by isPresent().
+ *
+ */
+
+public final class IntensityMatrix {
+
+	private final int rowCount;
+	private final List<String> experiments;
+	private final Map<String, Integer> experimentIndices = new HashMap<>();
+	private final long[] values;
+	private final BitSet present;
+
+	/**
+	 * @param rowCount number of peptides
+	 * @param experiments names of the columns
+	 * @throws IllegalArgumentException
+	 */
+	public IntensityMatrix(int rowCount, List<String> experiments) {
+		this.rowCount = rowCount;
+		this.experiments = new ArrayList<>(experiments);
+		for (int column = 0; column < experiments.size(); column++) {
+			experimentIndices.put(experiments.get(column), column);
+		}
+		int cellCount;
+		try {
+			cellCount = Math.multiplyExact(rowCount, experiments.size());
+		} catch (ArithmeticException e) {
+			throw new IllegalArgumentException("Intensity matrix of " + rowCount + " peptides and " + experiments.size() + " experiments is too large", e);
+		}
+		values = new long[cellCount];
+		present = new BitSet(values.length);
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public int getColumnCount() {
+		return experiments.size();
+	}
+
+	public List<String> getExperiments() {
+		return Collections.unmodifiableList(experiments);
+	}
+
+	/**
+	 * Gets the column of an experiment.
+	 * @param experiment
+	 * @return column or -1 if the experiment is not part of the matrix
+	 */
+	public int getColumnIndex(String experiment) {
+		Integer column = experimentIndices.get(experiment);
+		if (column == null) {
+			return -1;
+		}
+		return column;
+	}
+
+	public long get(int row, int column) {
+		return values[row * experiments.size() + column];
+	}
+
+	public boolean isPresent(int row, int column) {
+		return present.get(row * experiments.size() + column);
+	}
+
+	/**
+	 * Adds an intensity to a cell and marks the cell as present.
+	 * @param row
+	 * @param column
+	 * @param intensity
+	 */
+	public void add(int row, int column, long intensity) {
+		int index = row * experiments.size() + column;
+		values[index] += intensity;
+		present.set(index);
+	}
+
+	/**
+	 * Copies the intensities of a peptide.
+	 * @param row
+	 * @return intensities by column
+	 */
+	public long[] getRow(int row) {
+		long[] result = new long[experiments.size()];
+		System.arraycopy(values, row * result.length, result, 0, result.length);
+		return result;
+	}
+
+	/**
+	 * Copies the intensities of an experiment.
+	 * @param column
+	 * @return intensities by row
+	 */
+	public long[] getColumn(int column) {
+		long[] result = new long[rowCount];
+		for (int row = 0, index = column; row < rowCount; row++, index += experiments.size()) {
+			result[row] = values[index];
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the intensities of a peptide to a running sum, e.g. over all peptides covering a residue.
+	 * @param row
+	 * @param sums array with one element per column
+	 */
+	public void addRowTo(int row, long[] sums) {
+		int offset = row * experiments.size();
+		for (int column = 0; column < sums.length; column++) {
+			sums[column] += values[offset + column];
+		}
+	}
+
+	public long getRowMax(int row) {
+		long max = 0;
+		int offset = row * experiments.size();
+		for (int column = 0; column < experiments.size(); column++) {
+			max = Math.max(max, values[offset + column]);
+		}
+		return max;
+	}
+
+	/**
+	 * Gets the intensities of a peptide by experiment name, only containing experiments with features.
+	 * @param row
+	 * @return map of experiment names and intensities
+	 */
+	public Map<String, Long> getRowAsMap(int row) {
+		Map<String, Long> result = new HashMap<>();
+		int offset = row * experiments.size();
+		for (int column = 0; column < experiments.size(); column++) {
+			if (present.get(offset + column)) {
+				result.put(experiments.get(column), values[offset + column]);
+			}
+		}
+		return result;
+	}
+}
@@ -29,6 +29,20 @@ public class Modification implements AnalysisComponent {
 	private String abbreviation;
 	
 	
+	public Modification(String id, String name, double localizationProbability, double scoreDiff, double pep, double deltaScore, double scoreForLocalization, int positionInPeptide, List<String> peptideIds, String sequenceWindow) {
+		this.id = id;
+		this.name = name;
+		this.localizationProbability = localizationProbability;
+		this.scoreDiff = scoreDiff;
+		this.pep = pep;
+		this.deltaScore = deltaScore;
+		this.scoreForLocalization = scoreForLocalization;
+		this.positionInPeptide = positionInPeptide;
+		this.peptideIds = peptideIds;
+		this.sequenceWindow = cleanSequenceWindow(sequenceWindow);
+		this.abbreviation = abbreviate(name);
+	}
+	
 	public Modification(String name, Map<ModificationsTableHeaders, String> properties) {
 		this.id = properties.get(ModificationsTableHeaders.ID);
 		this.name = name;
@@ -40,13 +54,31 @@ public class Modification implements AnalysisComponent {
 		this.positionInPeptide = Integer.parseInt(properties.get(ModificationsTableHeaders.POSITION_IN_PEPTIDE));
 		this.peptideIds = Arrays.asList(properties.get(ModificationsTableHeaders.PEPTIDE_IDS).split(";"));
 		
-		String tmp = properties.get(ModificationsTableHeaders.SEQUENCE_WINDOW);
-		this.sequenceWindow = tmp.replaceAll("[^a-zA-Z]", "").toUpperCase();
-		
-		if (this.name.length() > 3) {
-			this.abbreviation = this.name.substring(0, 3);
+		this.sequenceWindow = cleanSequenceWindow(properties.get(ModificationsTableHeaders.SEQUENCE_WINDOW));
+		this.abbreviation = abbreviate(this.name);
+	}
+	
+	/**
+	 * Removes everything but letters from a sequence window, e.g. the probabilities in "PEPS(0.98)TIDE".
+	 * @param sequenceWindow
+	 * @return upper case letters
+	 */
+	private static String cleanSequenceWindow(String sequenceWindow) {
+		StringBuilder cleaned = new StringBuilder(sequenceWindow.length());
+		for (int i = 0; i < sequenceWindow.length(); i++) {
+			char c = sequenceWindow.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+				cleaned.append(Character.toUpperCase(c));
+			}
+		}
+		return cleaned.toString();
+	}
+	
+	private static String abbreviate(String name) {
+		if (name.length() > 3) {
+			return name.substring(0, 3);
 		} else {
-			this.abbreviation = this.name;
+			return name;
 		}
 	}
 	
@@ -0,0 +1,95 @@
+package de.tum.bio.proteomics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import de.tum.bio.proteomics.analysis.AnalysisComponent;
+
+/**
+ * Assigns the sites of many modifications to the amino acids of their peptides.
+ * Sites are resolved in parallel for each modification type without creating intermediate lists per peptide,
+ * and assigned afterwards in the order of the types and sites.
+ *
+ */
+
+final class ModificationAssigner {
+
+	private final Map<String, Peptide> peptides;
+
+	/**
+	 * @param peptides peptides by ID
+	 */
+	ModificationAssigner(Map<String, Peptide> peptides) {
+		this.peptides = peptides;
+	}
+
+	/**
+	 * @param modificationsByName sites of each modification type
+	 */
+	void assign(Map<String, List<AnalysisComponent>> modificationsByName) {
+		List<List<Modification>> modificationLists = new ArrayList<>();
+		for (List<AnalysisComponent> components : modificationsByName.values()) {
+			List<Modification> modifications = new ArrayList<>();
+			for (AnalysisComponent component : components) {
+				if (component instanceof Modification) {
+					modifications.add((Modification) component);
+				}
+			}
+			modificationLists.add(modifications);
+		}
+
+		List<List<Site>> resolvedLists = modificationLists.parallelStream()
+				.map(this::resolve)
+				.collect(Collectors.toList());
+		for (List<Site> sites : resolvedLists) {
+			for (Site site : sites) {
+				site.peptide.getAminoAcidAtPosition(site.position).setModification(site.modification);
+			}
+		}
+	}
+
+	/**
+	 * Locates the peptides of each site within its sequence window and converts the position of the site
+	 * to positions within the peptides.
+	 * @param modifications sites of one modification type
+	 * @return amino acids to modify
+	 */
+	private List<Site> resolve(List<Modification> modifications) {
+		List<Site> sites = new ArrayList<>();
+		for (Modification modification : modifications) {
+			if (modification.getSequenceWindow() == null) {
+				continue;
+			}
+			// Peptides are searched in their packed form, so no String is built per peptide
+			PackedSequence window = PackedSequence.of(modification.getSequenceWindow());
+			for (String peptideId : modification.getPeptideIds()) {
+				Peptide peptide = peptides.get(peptideId);
+				if (peptide == null || peptide.getSequence() == null || peptide.getLength() == 0) {
+					continue;
+				}
+				PackedSequence sequence = peptide.getSequence();
+				for (int start = window.indexOf(sequence, 0); start >= 0; start = window.indexOf(sequence, start + 1)) {
+					int position = modification.getPositionInPeptide() - start;
+					if (position >= 1 && position <= peptide.getLength()) {
+						sites.add(new Site(peptide, position, modification));
+					}
+				}
+			}
+		}
+		return sites;
+	}
+
+	private static final class Site {
+		private final Peptide peptide;
+		private final int position;
+		private final Modification modification;
+
+		private Site(Peptide peptide, int position, Modification modification) {
+			this.peptide = peptide;
+			this.position = position;
+			this.modification = modification;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package de.tum.bio.proteomics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Immutable residue sequence stored as one byte per residue instead of the two bytes per char of a String.
+ * Residues are kept as single letter codes in their original case, characters outside of ASCII are stored as X.
+ *
+ */
+
+public final class PackedSequence implements CharSequence {
+
+	public static final PackedSequence EMPTY = new PackedSequence(new byte[0]);
+
+	/**
+	 * Maximum length of a k-mer that fits into a long with 5 bits per residue.
+	 */
+	public static final int MAX_KMER_LENGTH = 12;
+
+	private static final byte UNKNOWN = 'X';
+	private static final int KMER_BITS = 5;
+	private static final int KMER_OTHER = 31;
+
+	private final byte[] residues;
+	private int hash;
+
+	private PackedSequence(byte[] residues) {
+		this.residues = residues;
+	}
+
+	/**
+	 * @param sequence
+	 * @return packed sequence, or null if sequence is null
+	 */
+	public static PackedSequence of(CharSequence sequence) {
+		if (sequence == null) {
+			return null;
+		}
+		if (sequence instanceof PackedSequence) {
+			return (PackedSequence) sequence;
+		}
+		int length = sequence.length();
+		byte[] residues = new byte[length];
+		for (int i = 0; i < length; i++) {
+			char residue = sequence.charAt(i);
+			residues[i] = residue < 128 ? (byte) residue : UNKNOWN;
+		}
+		return new PackedSequence(residues);
+	}
+
+	/**
+	 * Packs single letter codes given as ASCII bytes.
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return packed sequence
+	 */
+	public static PackedSequence of(byte[] bytes, int offset, int length) {
+		byte[] residues = Arrays.copyOfRange(bytes, offset, offset + length);
+		for (int i = 0; i < length; i++) {
+			if (residues[i] < 0) {
+				residues[i] = UNKNOWN;
+			}
+		}
+		return new PackedSequence(residues);
+	}
+
+	@Override
+	public int length() {
+		return residues.length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return (char) residues[index];
+	}
+
+	@Override
+	public PackedSequence subSequence(int start, int end) {
+		if (start < 0 || end > residues.length || start > end) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + residues.length);
+		}
+		if (start == 0 && end == residues.length) {
+			return this;
+		}
+		return new PackedSequence(Arrays.copyOfRange(residues, start, end));
+	}
+
+	/**
+	 * @param start
+	 * @param end
+	 * @return residues from start to end as String
+	 */
+	public String substring(int start, int end) {
+		if (start < 0 || end > residues.length || start > end) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + residues.length);
+		}
+		return new String(residues, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Finds a subsequence, e.g. a peptide in a protein.
+	 * @param target
+	 * @param fromIndex
+	 * @return index of the first occurrence at or after fromIndex, or -1
+	 */
+	public int indexOf(CharSequence target, int fromIndex) {
+		int targetLength = target.length();
+		int last = residues.length - targetLength;
+		if (targetLength == 0) {
+			return Math.min(Math.max(fromIndex, 0), residues.length);
+		}
+		char first = target.charAt(0);
+		for (int i = Math.max(fromIndex, 0); i <= last; i++) {
+			if (residues[i] != first) {
+				continue;
+			}
+			int j = 1;
+			while (j < targetLength && residues[i + j] == target.charAt(j)) {
+				j++;
+			}
+			if (j == targetLength) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Encodes k residues into a long with 5 bits per residue, e.g. as key of a k-mer index.
+	 * Letters are encoded case-insensitively by their position in the alphabet, all other characters share one code.
+	 * @param start
+	 * @param k at most {@link #MAX_KMER_LENGTH}
+	 * @return k-mer code
+	 */
+	public long kmer(int start, int k) {
+		if (k < 0 || k > MAX_KMER_LENGTH || start < 0 || start + k > residues.length) {
+			throw new IndexOutOfBoundsException("start " + start + ", k " + k + ", length " + residues.length);
+		}
+		long code = 0;
+		for (int i = start; i < start + k; i++) {
+			int letter = (residues[i] | 0x20) - 'a';
+			code = (code << KMER_BITS) | (letter >= 0 && letter < 26 ? letter + 1 : KMER_OTHER);
+		}
+		return code;
+	}
+
+	@Override
+	public String toString() {
+		return new String(residues, StandardCharsets.ISO_8859_1);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof PackedSequence)) {
+			return false;
+		}
+		return Arrays.equals(residues, ((PackedSequence) obj).residues);
+	}
+
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if (h == 0 && residues.length > 0) {
+			h = Arrays.hashCode(residues);
+			hash = h;
+		}
+		return h;
+	}
+}
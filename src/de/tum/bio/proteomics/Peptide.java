@@ -2,7 +2,7 @@ package de.tum.bio.proteomics;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Objects;
 
 import de.tum.bio.proteomics.analysis.AnalysisComponent;
 import de.tum.bio.proteomics.headers.PeptidesTableHeaders;
@@ -36,7 +36,9 @@ public class Peptide extends AminoAcidSequence implements AnalysisComponent {
 	private boolean isInSilico = false;
 	
 	private Map<String, List<Feature>> featureMap;
-	private Map<String, Long> experimentIntensities;
+	// Position of this peptide in the intensity matrix of its PeptideId
+	private int ordinal = -1;
+	private IntensityMatrix experimentIntensities;
 	private long maxTotalIntensity;
 	private long minTotalIntensity;
 	private long maxExperimentIntensity;
@@ -167,17 +169,40 @@ public class Peptide extends AminoAcidSequence implements AnalysisComponent {
 		return featureMap.get(experiment);
 	}
 	
-	public void setExperimentIntensities(Map<String, Long> experimentIntensities) {
+	public void setOrdinal(int ordinal) {
+		this.ordinal = ordinal;
+	}
+	
+	public int getOrdinal() {
+		return ordinal;
+	}
+	
+	/**
+	 * Assigns the intensity matrix of the PeptideId holding this peptide.
+	 * @param experimentIntensities
+	 */
+	public void setExperimentIntensities(IntensityMatrix experimentIntensities) {
 		this.experimentIntensities = experimentIntensities;
-		setMaxExperimentIntensity(calculateMaxExperimentIntensity(experimentIntensities));
+		setMaxExperimentIntensity(experimentIntensities.getRowMax(ordinal));
 	}
 	
+	/**
+	 * Gets the summed feature intensities of this peptide by experiment.
+	 * @return map of the experiments with features, or null if no intensities are assigned
+	 */
 	public Map<String, Long> getExperimentIntensities() {
-		return experimentIntensities;
+		if (experimentIntensities == null) {
+			return null;
+		}
+		return experimentIntensities.getRowAsMap(ordinal);
 	}
 	
 	public long getTotalFeatureIntensityByExperiment(String experiment) {
-		return experimentIntensities.get(experiment);
+		int column = experimentIntensities.getColumnIndex(experiment);
+		if (column < 0) {
+			return 0;
+		}
+		return experimentIntensities.get(ordinal, column);
 	}
 	
 	public void setTotalIntensity(long totalIntensity) {
@@ -232,6 +257,20 @@ public class Peptide extends AminoAcidSequence implements AnalysisComponent {
 		return minExperimentIntensity;
 	}
 	
+	/**
+	 * Compares the values read from the peptides table, e.g. to find peptides that changed after a rerun.
+	 * Intensities by experiment and modifications are not compared.
+	 * @param other
+	 * @return true if all values are equal
+	 */
+	public boolean hasSameData(Peptide other) {
+		return Objects.equals(id, other.id) && Objects.equals(getSequence(), other.getSequence())
+				&& getStartPosition() == other.getStartPosition() && getEndPosition() == other.getEndPosition()
+				&& getMsmsCount() == other.getMsmsCount() && Objects.equals(getMsmsIds(), other.getMsmsIds())
+				&& Double.compare(getScore(), other.getScore()) == 0 && Objects.equals(evidenceIds, other.evidenceIds)
+				&& Objects.equals(proteinGroupsIds, other.proteinGroupsIds) && getTotalIntensity() == other.getTotalIntensity();
+	}
+	
 	public void addModification(Modification modification) {
 		super.assignModificationToAminoAcid(modification, modification.getPositionInPeptide());
 	}
@@ -243,14 +282,4 @@ public class Peptide extends AminoAcidSequence implements AnalysisComponent {
 	public Map<Integer, Modification> getModifications() {
 		return super.getModifications();
 	}
-	
-	private long calculateMaxExperimentIntensity(Map<String, Long> experimentIntensities) {
-		long max = 0;
-		for (Entry<String, Long> entry : experimentIntensities.entrySet()) {
-			if (entry.getValue() > max) {
-				max = entry.getValue();
-			}
-		}
-		return max;
-	}
 }
\ No newline at end of file
@@ -1,11 +1,12 @@
 package de.tum.bio.proteomics;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import com.compomics.util.experiment.biology.Enzyme;
 
@@ -13,11 +14,13 @@ import de.tum.bio.proteomics.analysis.AnalysisComponent;
 import de.tum.bio.proteomics.analysis.AnalysisComponentType;
 import de.tum.bio.proteomics.headers.StatisticsTableHeaders;
 import de.tum.bio.proteomics.tools.Toolbox;
+import de.tum.bio.utils.StringPool;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.MapChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.ObservableMap;
 
@@ -34,13 +37,42 @@ public class PeptideId implements AnalysisComponent {
 	
 	private ObservableMap<String, ProteinGroup> proteins = FXCollections.observableHashMap();
 	private ObservableMap<String, Peptide> peptides = FXCollections.observableHashMap();
+	// Peptides by ordinal, the rows of the intensity matrix
+	private List<Peptide> peptidesByOrdinal = new ArrayList<>();
+	// Ordinals of removed peptides, given to the next added peptides
+	private BitSet freeOrdinals = new BitSet();
+	// Ordinals of the peptides of each protein group
+	private Map<String, List<Integer>> peptideOrdinalsByProteinGroupId = new HashMap<>();
+	private IntensityMatrix experimentIntensities;
+	// Decodes features on demand if evidences are loaded lazily
+	private volatile FeatureProvider featureProvider;
+	// Ordinals of the peptides whose intensities are part of the matrix in lazy mode
+	private BitSet loadedIntensities = new BitSet();
 	
 	private Map<Enzyme, Map<String, List<Peptide>>> digestionAssays = new HashMap<>();
 	
 	private AnalysisSummary summary;
 	
+	// Repeated values of this identification, e.g. experiment names
+	private final StringPool stringPool;
+	
+	// Directory the identification was read from and the states of its files, to detect changes
+	private String sourceDirectory;
+	private Map<String, String> sourceFileStates = new HashMap<>();
+	
 	public PeptideId(int id, Map<AnalysisComponentType, List<AnalysisComponent>> data, String name) {
+		this(id, data, name, new StringPool());
+	}
+	
+	/**
+	 * @param id
+	 * @param data protein groups and peptides
+	 * @param name
+	 * @param stringPool dictionary of repeated values, may be shared with other identifications
+	 */
+	public PeptideId(int id, Map<AnalysisComponentType, List<AnalysisComponent>> data, String name, StringPool stringPool) {
 		this.id = id;
+		this.stringPool = stringPool;
 
 		for (AnalysisComponent proteinGroup : data.get(AnalysisComponentType.MaxQuant_ProteinGroups)) {
 			proteins.put(((ProteinGroup) proteinGroup).getId(), (ProteinGroup) proteinGroup);
@@ -48,6 +80,17 @@ public class PeptideId implements AnalysisComponent {
 		for (AnalysisComponent peptide : data.get(AnalysisComponentType.MaxQuant_Peptides)) {
 			peptides.put(((Peptide) peptide).getId(), (Peptide) peptide);
 		}
+		for (Peptide peptide : peptides.values()) {
+			indexPeptide(peptide);
+		}
+		peptides.addListener((MapChangeListener<String, Peptide>) change -> {
+			if (change.wasRemoved()) {
+				unindexPeptide(change.getValueRemoved());
+			}
+			if (change.wasAdded()) {
+				indexPeptide(change.getValueAdded());
+			}
+		});
 		
 		this.name = "Peptide Identification: " + name;
 	}
@@ -68,6 +111,18 @@ public class PeptideId implements AnalysisComponent {
 		return peptides.get(id);
 	}
 	
+	public Peptide getPeptideByOrdinal(int ordinal) {
+		return peptidesByOrdinal.get(ordinal);
+	}
+	
+	/**
+	 * Gets the number of ordinals given so far, including those of removed peptides. This is the row count of the intensity matrix.
+	 * @return number of ordinals
+	 */
+	public int getOrdinalCount() {
+		return peptidesByOrdinal.size();
+	}
+	
 	public ObservableMap<String, ProteinGroup> getAllProteinGroups() {
 		return proteins;
 	}
@@ -76,16 +131,73 @@ public class PeptideId implements AnalysisComponent {
 		return peptides;
 	}
 	
-	public ObservableList<Peptide> getPeptidesByProteinGroupsId(String proteinGroupId) {
+	public synchronized ObservableList<Peptide> getPeptidesByProteinGroupsId(String proteinGroupId) {
 		List<Peptide> returnPeptides = new ArrayList<>();
-		for (Entry<String, Peptide> entry : peptides.entrySet()) {
-			if (Arrays.asList(entry.getValue().getProteinGroupsIds().split(";")).contains(String.valueOf(proteinGroupId))) {
-				returnPeptides.add(entry.getValue());
+		List<Integer> ordinals = peptideOrdinalsByProteinGroupId.get(proteinGroupId);
+		if (ordinals != null) {
+			for (int ordinal : ordinals) {
+				returnPeptides.add(peptidesByOrdinal.get(ordinal));
 			}
 		}
 		return FXCollections.observableArrayList(returnPeptides);
 	}
 	
+	/**
+	 * Gives a new peptide an ordinal and adds it to the index of its protein groups. Peptides prepared by preparePeptides()
+	 * take the ordinal they got there, all others the lowest freed or the next ordinal.
+	 * @param peptide
+	 */
+	private void indexPeptide(Peptide peptide) {
+		int ordinal = peptide.getOrdinal();
+		if (ordinal < 0 || (ordinal < peptidesByOrdinal.size() && peptidesByOrdinal.get(ordinal) != null)) {
+			ordinal = freeOrdinals.nextSetBit(0);
+			if (ordinal < 0) {
+				ordinal = peptidesByOrdinal.size();
+			}
+		}
+		while (peptidesByOrdinal.size() <= ordinal) {
+			freeOrdinals.set(peptidesByOrdinal.size());
+			peptidesByOrdinal.add(null);
+		}
+		freeOrdinals.clear(ordinal);
+		peptidesByOrdinal.set(ordinal, peptide);
+		peptide.setOrdinal(ordinal);
+		for (String proteinGroupId : getProteinGroupsIds(peptide)) {
+			List<Integer> ordinals = peptideOrdinalsByProteinGroupId.get(proteinGroupId);
+			if (ordinals == null) {
+				ordinals = new ArrayList<>();
+				peptideOrdinalsByProteinGroupId.put(proteinGroupId, ordinals);
+			}
+			// Ordinals are kept sorted, protein group IDs may be listed twice
+			int index = Collections.binarySearch(ordinals, peptide.getOrdinal());
+			if (index < 0) {
+				ordinals.add(-index - 1, peptide.getOrdinal());
+			}
+		}
+	}
+	
+	/**
+	 * Removes a peptide from the index. Its ordinal is freed for the next added peptides.
+	 * @param peptide
+	 */
+	private void unindexPeptide(Peptide peptide) {
+		for (String proteinGroupId : getProteinGroupsIds(peptide)) {
+			List<Integer> ordinals = peptideOrdinalsByProteinGroupId.get(proteinGroupId);
+			if (ordinals != null) {
+				ordinals.remove(Integer.valueOf(peptide.getOrdinal()));
+			}
+		}
+		peptidesByOrdinal.set(peptide.getOrdinal(), null);
+		freeOrdinals.set(peptide.getOrdinal());
+	}
+	
+	private static String[] getProteinGroupsIds(Peptide peptide) {
+		if (peptide.getProteinGroupsIds() == null) {
+			return new String[0];
+		}
+		return peptide.getProteinGroupsIds().split(";");
+	}
+	
 	@Override
 	public String toString() {
 		return name;
@@ -172,8 +284,9 @@ public class PeptideId implements AnalysisComponent {
 		
 		ProteinGroup protein = proteins.get(proteinGroupId); // TODO: optimize storage of digestion assays
 		List<Peptide> peptides = new ArrayList<>();
+		String proteinSequence = protein.getSequenceAsString();
 		for (String sequence : sequences) {
-			List<List<Integer>> positions = Toolbox.simpleMap(sequence, protein.getSequenceAsString());
+			List<List<Integer>> positions = Toolbox.simpleMap(sequence, proteinSequence);
 			for (List<Integer> position : positions) {
 				Peptide peptide = new Peptide(null, sequence, position.get(0), position.get(1), 0);
 				peptide.setProteinGroupsIds(String.valueOf(proteinGroupId));
@@ -207,22 +320,265 @@ public class PeptideId implements AnalysisComponent {
 	
 	public void setSummary(AnalysisSummary summary) {
 		this.summary = summary;
+		// Experiments get their codes in the order of the summary
+		for (String experiment : summary.getExperimentNames()) {
+			stringPool.getCode(experiment);
+		}
 	}
 	
 	public AnalysisSummary getSummary() {
 		return summary;
 	}
 	
-	public void setModifications(String name, List<AnalysisComponent> modifications) {
-		for (AnalysisComponent modification : modifications) {
-			if (modification instanceof Modification) {
-				for (String peptideId : ((Modification) modification).getPeptideIds()) {
-					Peptide peptide = getPeptideById(peptideId);
-					if (peptide != null) {
-						peptide.addModification((Modification) modification);
+	public StringPool getStringPool() {
+		return stringPool;
+	}
+	
+	/**
+	 * Gets the experiments of the summary in their order, the columns of a new intensity matrix.
+	 * @return modifiable list of experiment names, empty without summary
+	 */
+	public List<String> getExperimentNames() {
+		List<String> experimentNames = new ArrayList<>();
+		if (summary != null) {
+			experimentNames.addAll(summary.getExperimentNames());
+		}
+		return experimentNames;
+	}
+	
+	/**
+	 * Assigns the summed feature intensities of all peptides. Rows of the matrix are peptide ordinals.
+	 * @param experimentIntensities
+	 */
+	public synchronized void setExperimentIntensities(IntensityMatrix experimentIntensities) {
+		this.experimentIntensities = experimentIntensities;
+		for (Peptide peptide : peptidesByOrdinal) {
+			if (peptide != null) {
+				peptide.setExperimentIntensities(experimentIntensities);
+			}
+		}
+	}
+	
+	public synchronized IntensityMatrix getExperimentIntensities() {
+		return experimentIntensities;
+	}
+	
+	/**
+	 * Switches to lazy evidences. The intensity matrix starts empty with the experiments of the summary
+	 * and is filled protein group by protein group through loadEvidence().
+	 * @param featureProvider
+	 */
+	public synchronized void setFeatureProvider(FeatureProvider featureProvider) {
+		this.featureProvider = featureProvider;
+		loadedIntensities.clear();
+		setExperimentIntensities(new IntensityMatrix(getOrdinalCount(), getExperimentNames()));
+	}
+	
+	public FeatureProvider getFeatureProvider() {
+		return featureProvider;
+	}
+	
+	public boolean hasLazyEvidence() {
+		return featureProvider != null;
+	}
+	
+	/**
+	 * Adds the intensities of the peptides of a protein group to the matrix, if evidences are loaded lazily.
+	 * Each peptide is read once, features of experiments missing in the summary are skipped. Evidences are read without
+	 * holding the lock of the identification, so a refresh is never blocked by disk access. Features of peptides whose
+	 * matrix or ID changed meanwhile are dropped and read again by the next call.
+	 * @param proteinGroupId
+	 * @throws IOException
+	 */
+	public void loadEvidence(String proteinGroupId) throws IOException {
+		FeatureProvider provider;
+		IntensityMatrix matrix;
+		List<Peptide> pendingPeptides = new ArrayList<>();
+		synchronized (this) {
+			provider = featureProvider;
+			matrix = experimentIntensities;
+			if (provider == null) {
+				return;
+			}
+			for (Peptide peptide : getPeptidesByProteinGroupsId(proteinGroupId)) {
+				// Peptides added after the matrix was created have no row
+				if (peptide.getOrdinal() < matrix.getRowCount() && !loadedIntensities.get(peptide.getOrdinal())) {
+					pendingPeptides.add(peptide);
+				}
+			}
+		}
+		if (pendingPeptides.isEmpty()) {
+			return;
+		}
+		Map<String, List<Feature>> features = provider.getFeatures(pendingPeptides);
+		synchronized (this) {
+			if (featureProvider != provider || experimentIntensities != matrix) {
+				return;
+			}
+			for (Peptide pendingPeptide : pendingPeptides) {
+				// A refresh may have replaced the peptide, a peptide with the same ID keeps the row
+				Peptide peptide = peptidesByOrdinal.get(pendingPeptide.getOrdinal());
+				if (peptide == null || !peptide.getId().equals(pendingPeptide.getId()) || loadedIntensities.get(peptide.getOrdinal())) {
+					continue;
+				}
+				List<Feature> peptideFeatures = features.get(peptide.getId());
+				if (peptideFeatures != null) {
+					for (Feature feature : peptideFeatures) {
+						int column = matrix.getColumnIndex(feature.getExperiment());
+						if (column >= 0) {
+							matrix.add(peptide.getOrdinal(), column, feature.getIntensity());
+						}
 					}
 				}
+				peptide.setMaxExperimentIntensity(matrix.getRowMax(peptide.getOrdinal()));
+				loadedIntensities.set(peptide.getOrdinal());
+			}
+		}
+	}
+	
+	/**
+	 * Replaces the protein groups by those of a new read of the same directory. Protein groups with unchanged values
+	 * are kept, so are sequences and statistics of changed protein groups with the same database IDs.
+	 * @param proteinGroups
+	 * @return number of added, changed and removed protein groups
+	 */
+	public int updateProteinGroups(List<AnalysisComponent> proteinGroups) {
+		Map<String, ProteinGroup> oldByDatabaseIds = new HashMap<>();
+		for (ProteinGroup proteinGroup : proteins.values()) {
+			oldByDatabaseIds.put(proteinGroup.getDatabaseIds(), proteinGroup);
+		}
+		Map<String, ProteinGroup> newProteins = new HashMap<>();
+		for (AnalysisComponent component : proteinGroups) {
+			newProteins.put(((ProteinGroup) component).getId(), (ProteinGroup) component);
+		}
+		int changes = 0;
+		for (String proteinGroupId : new ArrayList<>(proteins.keySet())) {
+			if (!newProteins.containsKey(proteinGroupId)) {
+				proteins.remove(proteinGroupId);
+				changes++;
+			}
+		}
+		for (ProteinGroup proteinGroup : newProteins.values()) {
+			ProteinGroup oldProteinGroup = proteins.get(proteinGroup.getId());
+			if (oldProteinGroup != null && oldProteinGroup.hasSameData(proteinGroup)) {
+				continue;
+			}
+			ProteinGroup source = oldByDatabaseIds.get(proteinGroup.getDatabaseIds());
+			if (source != null) {
+				if (source.getSequence() != null) {
+					proteinGroup.setSequence(source.getSequence());
+				}
+				proteinGroup.setLog2Enrichment(source.getLog2Enrichment());
+				proteinGroup.setMinusLog10PValue(source.getMinusLog10PValue());
+			}
+			proteins.put(proteinGroup.getId(), proteinGroup);
+			changes++;
+		}
+		if (getSelectedProteinGroupId() != null && !proteins.containsKey(getSelectedProteinGroupId())) {
+			setSelectedProteinGroupId(null);
+		}
+		return changes;
+	}
+	
+	/**
+	 * Prepares the peptides of a new read of the same directory for updatePeptides() without modifying this identification,
+	 * so it can run in the background while the identification is shown. Peptides take over the ordinal of the peptide
+	 * with the same ID, added peptides the freed ordinals first, so the intensity matrix does not grow with every refresh.
+	 * @param newPeptides all peptides of the directory
+	 * @param modificationsByName sites to assign to the new peptides, may be null
+	 * @return number of ordinals after the update, the row count of a new intensity matrix
+	 */
+	public synchronized int preparePeptides(List<AnalysisComponent> newPeptides, Map<String, List<AnalysisComponent>> modificationsByName) {
+		Map<String, Peptide> newPeptidesById = new HashMap<>();
+		for (AnalysisComponent component : newPeptides) {
+			newPeptidesById.put(((Peptide) component).getId(), (Peptide) component);
+		}
+		BitSet free = (BitSet) freeOrdinals.clone();
+		for (Peptide peptide : peptides.values()) {
+			if (!newPeptidesById.containsKey(peptide.getId())) {
+				free.set(peptide.getOrdinal());
 			}
 		}
+		int ordinalCount = peptidesByOrdinal.size();
+		int freeOrdinal = free.nextSetBit(0);
+		for (Peptide peptide : newPeptidesById.values()) {
+			Peptide oldPeptide = peptides.get(peptide.getId());
+			if (oldPeptide != null) {
+				peptide.setOrdinal(oldPeptide.getOrdinal());
+			} else if (freeOrdinal >= 0) {
+				peptide.setOrdinal(freeOrdinal);
+				freeOrdinal = free.nextSetBit(freeOrdinal + 1);
+			} else {
+				peptide.setOrdinal(ordinalCount++);
+			}
+		}
+		if (modificationsByName != null) {
+			new ModificationAssigner(newPeptidesById).assign(modificationsByName);
+		}
+		return ordinalCount;
+	}
+	
+	/**
+	 * Replaces all peptides by those of a new read of the same directory, prepared by preparePeptides(). Peptides with
+	 * unchanged values keep their intensities, those of changed peptides have to be assigned again.
+	 * @param newPeptides
+	 * @return number of added, changed and removed peptides
+	 */
+	public synchronized int updatePeptides(List<AnalysisComponent> newPeptides) {
+		Map<String, Peptide> newPeptidesById = new HashMap<>();
+		for (AnalysisComponent component : newPeptides) {
+			newPeptidesById.put(((Peptide) component).getId(), (Peptide) component);
+		}
+		int changes = 0;
+		for (String peptideId : new ArrayList<>(peptides.keySet())) {
+			if (!newPeptidesById.containsKey(peptideId)) {
+				peptides.remove(peptideId);
+				changes++;
+			}
+		}
+		for (Peptide peptide : newPeptidesById.values()) {
+			Peptide oldPeptide = peptides.get(peptide.getId());
+			if (oldPeptide == null || !oldPeptide.hasSameData(peptide)) {
+				changes++;
+			} else if (experimentIntensities != null && peptide.getOrdinal() < experimentIntensities.getRowCount()) {
+				peptide.setExperimentIntensities(experimentIntensities);
+			}
+			peptides.put(peptide.getId(), peptide);
+		}
+		if (getSelectedPeptideId() != null && !peptides.containsKey(getSelectedPeptideId())) {
+			setSelectedPeptideId(null);
+		}
+		return changes;
+	}
+	
+	public void setSource(String sourceDirectory, Map<String, String> sourceFileStates) {
+		this.sourceDirectory = sourceDirectory;
+		this.sourceFileStates = new HashMap<>(sourceFileStates);
+	}
+	
+	public String getSourceDirectory() {
+		return sourceDirectory;
+	}
+	
+	/**
+	 * Gets the states of the files the identification was read from, e.g. size and modification time.
+	 * @return states by file name
+	 */
+	public Map<String, String> getSourceFileStates() {
+		return sourceFileStates;
+	}
+	
+	public void setModifications(String name, List<AnalysisComponent> modifications) {
+		Map<String, List<AnalysisComponent>> modificationsByName = new HashMap<>();
+		modificationsByName.put(name, modifications);
+		setModifications(modificationsByName);
+	}
+	
+	/**
+	 * Assigns the sites of several modification types to the amino acids of their peptides in one pass.
+	 * @param modificationsByName sites by modification name, assigned in the order of the map
+	 */
+	public void setModifications(Map<String, List<AnalysisComponent>> modificationsByName) {
+		new ModificationAssigner(peptides).assign(modificationsByName);
 	}
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package de.tum.bio.proteomics;
 
 import java.util.Map;
+import java.util.Objects;
 
 import de.tum.bio.proteomics.analysis.AnalysisComponent;
 import de.tum.bio.proteomics.headers.ProteinGroupsTableHeaders;
@@ -124,4 +125,15 @@ public class ProteinGroup extends AminoAcidSequence implements AnalysisComponent
 	public DoubleProperty minusLog10PValueProperty() {
 		return minusLog10PValue;
 	}
+	
+	/**
+	 * Compares the values read from the protein groups table. Sequences and statistics are not compared.
+	 * @param other
+	 * @return true if all values are equal
+	 */
+	public boolean hasSameData(ProteinGroup other) {
+		return Objects.equals(id, other.id) && Objects.equals(getDatabaseIds(), other.getDatabaseIds())
+				&& Objects.equals(getNames(), other.getNames()) && Objects.equals(getGeneNames(), other.getGeneNames())
+				&& Double.compare(getSequenceCoverage(), other.getSequenceCoverage()) == 0;
+	}
 }
\ No newline at end of file
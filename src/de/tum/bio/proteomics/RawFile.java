@@ -14,9 +14,18 @@ public class RawFile implements AnalysisComponent {
 	private List<String> variableModifications;
 	
 	public RawFile(Map<SummaryTableHeaders, String> properties) {
-		name = properties.get(SummaryTableHeaders.RAW_FILE);
-		experiment = properties.get(SummaryTableHeaders.EXPERIMENT);
-		variableModifications = Arrays.asList(properties.get(SummaryTableHeaders.VARIABLE_MODIFICATIONS).split(";"));
+		this(properties.get(SummaryTableHeaders.RAW_FILE), properties.get(SummaryTableHeaders.EXPERIMENT), properties.get(SummaryTableHeaders.VARIABLE_MODIFICATIONS));
+	}
+	
+	/**
+	 * @param name
+	 * @param experiment
+	 * @param variableModifications semicolon separated modification names
+	 */
+	public RawFile(String name, String experiment, String variableModifications) {
+		this.name = name;
+		this.experiment = experiment;
+		this.variableModifications = Arrays.asList(variableModifications.split(";"));
 	}
 	
 	public String getName() {
@@ -1,6 +1,7 @@
 package de.tum.bio.proteomics.analysis;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Set;
 
 import application.Main;
@@ -30,6 +31,13 @@ public final class AnalysisHandler {
 	
 	private IntegerProperty selectedAnalysisId = new SimpleIntegerProperty(-1);
 	
+	// Only index evidences of MaxQuant collections and read them per protein group
+	private boolean lazyEvidenceLoading = false;
+	// Only index fasta databases and read sequences on request
+	private boolean indexedFastaLoading = false;
+	// Keep parsed MaxQuant tables in cache files next to them
+	private boolean tableCaching = false;
+	
 	private AnalysisHandler() {
 		// empty
 	}
@@ -49,58 +57,27 @@ public final class AnalysisHandler {
 	}
 	
 	public void addItem(int analysisId, AnalysisComponentType analysisComponentType, Main mainApp) {
-		Analysis analysis;
-		boolean newAnalysis = false;
-		
 		if (analysisId < 0) {
 			analysisId = getNextId(analysisCollection.keySet());
 		}
 		
-		if (!analysisCollection.containsKey(analysisId)) {
-			analysis = new Analysis(analysisId);
-			analysis.getPeptideIds().addListener(new MapChangeListener<Integer, PeptideId>() {
-				@Override
-				public void onChanged(MapChangeListener.Change<? extends Integer, ? extends PeptideId> change) {
-					controller.buildTreeView();
-				}
-			});
-			analysis.getStatisticsFiles().addListener(new MapChangeListener<Integer, StatisticsFile>() {
-				@Override
-				public void onChanged(MapChangeListener.Change<? extends Integer, ? extends StatisticsFile> change) {
-					controller.buildTreeView();
-				}
-			});
-			analysis.getFastaFiles().addListener(new MapChangeListener<Integer, FastaFile>() {
-				@Override
-				public void onChanged(MapChangeListener.Change<? extends Integer, ? extends FastaFile> change) {
-					controller.buildTreeView();
-				}
-			});
-			newAnalysis = true;
-		} else {
-			analysis = analysisCollection.get(analysisId);
-		}
-		
 		if (analysisComponentType == null) {
 			// Only new empty analysis should be created
-			analysisCollection.put(analysisId, analysis);
-		} else {
-			analysis.setDataAssigned(false);
-			if (newAnalysis) {
-				analysis.dataAssignedProperty().addListener((c, o, n) -> {
-					analysisCollection.put(analysis.getId(), analysis);
-				});
+			if (!analysisCollection.containsKey(analysisId)) {
+				analysisCollection.put(analysisId, createAnalysis(analysisId));
 			}
+		} else {
+			Analysis analysis = prepareAnalysis(analysisId);
 			
 			switch (analysisComponentType) {
 				case MaxQuant:
-					AnalysisComponentOpener.getMQCollection(mainApp, analysis);
+					AnalysisComponentOpener.getMQCollection(mainApp, analysis, lazyEvidenceLoading, tableCaching);
 					break;
 				case Perseus:
 					AnalysisComponentOpener.getPerseusCollection(mainApp, analysis);
 					break;
 				case Fasta:
-					AnalysisComponentOpener.getFastaCollection(mainApp, analysis);
+					AnalysisComponentOpener.getFastaCollection(mainApp, analysis, indexedFastaLoading);
 					break;
 				case MzIdentML:
 					AnalysisComponentOpener.getMzIdentMLCollection(mainApp, analysis);
@@ -111,6 +88,87 @@ public final class AnalysisHandler {
 		}
 	}
 	
+	public void setLazyEvidenceLoading(boolean lazyEvidenceLoading) {
+		this.lazyEvidenceLoading = lazyEvidenceLoading;
+	}
+	
+	public boolean isLazyEvidenceLoading() {
+		return lazyEvidenceLoading;
+	}
+	
+	public void setIndexedFastaLoading(boolean indexedFastaLoading) {
+		this.indexedFastaLoading = indexedFastaLoading;
+	}
+	
+	public boolean isIndexedFastaLoading() {
+		return indexedFastaLoading;
+	}
+	
+	public void setTableCaching(boolean tableCaching) {
+		this.tableCaching = tableCaching;
+	}
+	
+	public boolean isTableCaching() {
+		return tableCaching;
+	}
+	
+	/**
+	 * Opens many MaxQuant txt directories concurrently into one analysis.
+	 * @param analysisId id of the analysis or -1 for a new one
+	 * @param txtDirectories
+	 * @param mainApp
+	 */
+	public void addMQCollections(int analysisId, List<String> txtDirectories, Main mainApp) {
+		if (analysisId < 0) {
+			analysisId = getNextId(analysisCollection.keySet());
+		}
+		AnalysisComponentOpener.getMQCollections(mainApp, prepareAnalysis(analysisId), txtDirectories, lazyEvidenceLoading, tableCaching);
+	}
+	
+	/**
+	 * Gets an analysis that data is going to be assigned to. New analyses are added once they got data.
+	 * @param analysisId
+	 * @return analysis
+	 */
+	private Analysis prepareAnalysis(int analysisId) {
+		Analysis analysis = analysisCollection.get(analysisId);
+		boolean newAnalysis = (analysis == null);
+		if (newAnalysis) {
+			analysis = createAnalysis(analysisId);
+		}
+		analysis.setDataAssigned(false);
+		if (newAnalysis) {
+			Analysis addedAnalysis = analysis;
+			analysis.dataAssignedProperty().addListener((c, o, n) -> {
+				analysisCollection.put(addedAnalysis.getId(), addedAnalysis);
+			});
+		}
+		return analysis;
+	}
+	
+	private Analysis createAnalysis(int analysisId) {
+		Analysis analysis = new Analysis(analysisId);
+		analysis.getPeptideIds().addListener(new MapChangeListener<Integer, PeptideId>() {
+			@Override
+			public void onChanged(MapChangeListener.Change<? extends Integer, ? extends PeptideId> change) {
+				controller.buildTreeView();
+			}
+		});
+		analysis.getStatisticsFiles().addListener(new MapChangeListener<Integer, StatisticsFile>() {
+			@Override
+			public void onChanged(MapChangeListener.Change<? extends Integer, ? extends StatisticsFile> change) {
+				controller.buildTreeView();
+			}
+		});
+		analysis.getFastaFiles().addListener(new MapChangeListener<Integer, FastaFile>() {
+			@Override
+			public void onChanged(MapChangeListener.Change<? extends Integer, ? extends FastaFile> change) {
+				controller.buildTreeView();
+			}
+		});
+		return analysis;
+	}
+	
 	public void newAnalysis() {
 		addItem(-1, null, null);
 	}
@@ -134,6 +192,19 @@ public final class AnalysisHandler {
 		}
 	}
 	
+	/**
+	 * Reads the changed files of a MaxQuant identification again and merges them into it.
+	 * @param analysisId
+	 * @param itemId id of the PeptideId
+	 * @param mainApp
+	 */
+	public void refreshItem(int analysisId, int itemId, Main mainApp) {
+		Analysis analysis = analysisCollection.get(analysisId);
+		if (analysis != null && analysis.getPeptideId(itemId) != null) {
+			AnalysisComponentOpener.refreshMQCollection(mainApp, analysis.getPeptideId(itemId), tableCaching);
+		}
+	}
+	
 	public ObservableMap<Integer, Analysis> getAllAnalyses() {
 		return analysisCollection;
 	}
@@ -5,19 +5,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import de.tum.bio.proteomics.FastaFile;
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyStringProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
+import de.tum.bio.proteomics.PackedSequence;
+import de.tum.bio.utils.ProgressListener;
+import de.tum.bio.utils.ProgressReporter;
+import de.tum.bio.utils.ProgressSupport;
 
 /**
  * Deserializes FASTA files.
@@ -27,139 +24,177 @@ import javafx.beans.property.StringProperty;
 
 public class FastaFileReader implements FastaReader {
 	
-	private DoubleProperty progressProperty = new SimpleDoubleProperty();
-	private StringProperty statusProperty = new SimpleStringProperty();
+	// Number of headers the database type is detected from
+	private static final int DETECTION_HEADERS = 100;
+	
+	private ProgressSupport progressSupport = new ProgressSupport();
+	private boolean indexEnabled = false;
 	
 	public static enum DatabaseType {
-			UniProt(">.*?\\|((?:[a-z][a-z]*[0-9]+[a-z0-9]*))\\|.*?", ">");
+			UniProt(HeaderParsers.UNIPROT, ">"),
+			NCBI(HeaderParsers.NCBI, ">"),
+			Ensembl(HeaderParsers.ENSEMBL, ">"),
+			RefSeq(HeaderParsers.REFSEQ, ">"),
+			Generic(HeaderParsers.GENERIC, ">");
 		
-			String regExHeader;
+			HeaderParser headerParser;
 			String rowStarter;
-			private DatabaseType(String regExHeader, String rowStarter) {
-				this.regExHeader = regExHeader;
+			private DatabaseType(HeaderParser headerParser, String rowStarter) {
+				this.headerParser = headerParser;
 				this.rowStarter = rowStarter;
 			}
 			
-			private String getRegExHeader() {
-				return regExHeader;
+			public HeaderParser getHeaderParser() {
+				return headerParser;
 			}
 			
-			private String getRowStarter() {
+			String getRowStarter() {
 				return rowStarter;
 			}
+			
+			/**
+			 * Detects the database type from sample headers. The type that recognizes most headers wins if it recognizes
+			 * at least half of them, earlier types win ties. Otherwise the first token of each header is used as accession.
+			 * @param headers
+			 * @return database type, UniProt if there are no headers
+			 */
+			public static DatabaseType detect(List<String> headers) {
+				if (headers.isEmpty()) {
+					return UniProt;
+				}
+				DatabaseType result = Generic;
+				int maxRecognized = 0;
+				for (DatabaseType databaseType : values()) {
+					if (databaseType == Generic) {
+						continue;
+					}
+					int recognized = 0;
+					for (String header : headers) {
+						if (databaseType.getHeaderParser().recognizes(header)) {
+							recognized++;
+						}
+					}
+					if (recognized > maxRecognized && recognized * 2 >= headers.size()) {
+						result = databaseType;
+						maxRecognized = recognized;
+					}
+				}
+				return result;
+			}
 		};
 	
 	
+	/**
+	 * Enables indexed reading. Then only an index of the database is read, see {@link FastaIndex},
+	 * and sequences are fetched from the file when they are requested.
+	 * @param indexEnabled
+	 */
+	public void setIndexEnabled(boolean indexEnabled) {
+		this.indexEnabled = indexEnabled;
+	}
+	
+	public boolean isIndexEnabled() {
+		return indexEnabled;
+	}
+	
 	public FastaFile read(String filePath, DatabaseType databaseType) throws IOException {
 		Path path = Paths.get(filePath);
-		String fastaString = null;
-		BufferedReader reader = null;
-		try {
-			setStatusProperty("Open fasta...");
-			setProgressProperty(-1.0);
-			StringBuilder tmp = new StringBuilder();
-			String line = null;
-			reader = Files.newBufferedReader(path);
-			long numberOfLines = Files.lines(path).count();
-			long lineCount = 1;
-			setStatusProperty("Read fasta...");
-			while ((line = reader.readLine()) != null) {
-				setProgressProperty(((double) lineCount/numberOfLines));
-				tmp.append(line + "\n");
-				lineCount++;
-			}
-			fastaString = tmp.toString();
-		} catch (IOException e) {
-			throw e;
-		} finally {
-			if (reader != null) {
-				try {
-					reader.close();
-				} catch (IOException e) {
-					throw e;
-			    }
-			}
-		}		
-		if (fastaString != null) {
-			setStatusProperty("Read headers...");
+		if (databaseType == null) {
+			databaseType = detectDatabaseType(path);
+		}
+		if (indexEnabled) {
+			setStatusProperty("Index fasta...");
 			setProgressProperty(-1.0);
-			Map<String, String> headersAndSequences = getHeadersAndSequences(fastaString, databaseType);
-			setStatusProperty("Identify IDs...");
-			Map<String, String> idsAndSequences = getIdsAndSequences(headersAndSequences, databaseType);
+			FastaIndex fastaIndex = FastaIndex.open(path, databaseType, this::setProgressProperty);
 			setStatusProperty("Done.");
 			setProgressProperty(0.0);
-			return new FastaFile(idsAndSequences, headersAndSequences, databaseType, -1, path.getFileName().toString());
-		} else {
-			return null;
+			return new FastaFile(fastaIndex, -1, path.getFileName().toString());
 		}
-	}
-	
-	private Map<String, String> getHeadersAndSequences(String fastaString, DatabaseType databaseType) {
-		Map<String, String> result = new HashMap<String, String>();
-		StringBuilder headerBuilder = new StringBuilder();
-		StringBuilder sequenceBuilder = new StringBuilder();
-		
-		if (!fastaString.isEmpty()) {
-			if (databaseType == null) {
-				databaseType = DatabaseType.UniProt;
-			}
-			String[] fastaArray = fastaString.split("\n", -1);
-			for (String entry : fastaArray) {
-				// Go through each entry and collect information
-				if (entry.startsWith(databaseType.getRowStarter())) {
-					// Check if there are old entries and save them to map
-					if (headerBuilder.length() > 0) {
-						result.put(headerBuilder.toString(), sequenceBuilder.toString());
-						headerBuilder.setLength(0);
+		Map<String, PackedSequence> headersAndSequences = new HashMap<String, PackedSequence>();
+		Map<String, PackedSequence> idsAndSequences = new HashMap<String, PackedSequence>();
+		setStatusProperty("Open fasta...");
+		setProgressProperty(-1.0);
+		try (BufferedReader reader = Files.newBufferedReader(path)) {
+			// Progress is estimated from the characters read, FASTA files are plain ASCII
+			ProgressReporter progressReporter = ProgressReporter.forBytes(this::setProgressProperty, Files.size(path));
+			long position = 0;
+			setStatusProperty("Read fasta...");
+			HeaderParser headerParser = databaseType.getHeaderParser();
+			String rowStarter = databaseType.getRowStarter();
+			String header = null;
+			StringBuilder sequenceBuilder = new StringBuilder();
+			boolean empty = true;
+			String line = null;
+			// Each entry is stored as soon as the next header is reached, so the file is never held as a whole
+			while ((line = reader.readLine()) != null) {
+				empty = false;
+				if (line.startsWith(rowStarter)) {
+					// It's a header, lines before the first header stay part of the first sequence
+					if (header != null) {
+						addEntry(header, PackedSequence.of(sequenceBuilder), headerParser, headersAndSequences, idsAndSequences);
 						sequenceBuilder.setLength(0);
 					}
-					// It's a header
-					headerBuilder.append(entry.trim());
+					header = line.trim();
 				} else {
 					// It's part of the sequence
-					sequenceBuilder.append(entry.trim());
+					sequenceBuilder.append(line.trim());
 				}
+				position += line.length() + 1;
+				progressReporter.update(position);
 			}
 			// Save last entry
-			result.put(headerBuilder.toString(), sequenceBuilder.toString());
+			if (!empty) {
+				addEntry(header == null ? "" : header, PackedSequence.of(sequenceBuilder), headerParser, headersAndSequences, idsAndSequences);
+			}
 		}
-		return result;
+		setStatusProperty("Done.");
+		setProgressProperty(0.0);
+		return new FastaFile(idsAndSequences, headersAndSequences, databaseType, -1, path.getFileName().toString());
 	}
 	
-	private Map<String, String> getIdsAndSequences(Map<String, String> headersAndSequences, DatabaseType databaseType) {
-		Map<String, String> result = new HashMap<String, String>();
-		
-		if (databaseType == null) {
-			databaseType = DatabaseType.UniProt;
+	private void addEntry(String header, PackedSequence sequence, HeaderParser headerParser, Map<String, PackedSequence> headersAndSequences, Map<String, PackedSequence> idsAndSequences) {
+		headersAndSequences.put(header, sequence);
+		String id = headerParser.parseAccession(header);
+		if (id != null) {
+			idsAndSequences.put(id, sequence);
 		}
-		
-		// Create a new ID search pattern dependent on database type
-		Pattern p = Pattern.compile(databaseType.getRegExHeader(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-		
-		// Go through each fasta entry and parse header, then create new hashmap for ids and sequences
-		for (Entry<String, String> entry : headersAndSequences.entrySet()) {
-			Matcher m = p.matcher(entry.getKey());
-		    if (m.find()) {
-		        String id = m.group(1);
-		        result.put(id, entry.getValue());
-		    }
+	}
+	
+	/**
+	 * Detects the database type from the first headers of a FASTA file.
+	 * @param path
+	 * @return database type
+	 * @throws IOException
+	 */
+	static DatabaseType detectDatabaseType(Path path) throws IOException {
+		List<String> headers = new ArrayList<>();
+		String rowStarter = DatabaseType.Generic.getRowStarter();
+		try (BufferedReader reader = Files.newBufferedReader(path)) {
+			String line = null;
+			while (headers.size() < DETECTION_HEADERS && (line = reader.readLine()) != null) {
+				if (line.startsWith(rowStarter)) {
+					headers.add(line.trim());
+				}
+			}
 		}
-		return result;
+		return DatabaseType.detect(headers);
 	}
 	
-	public ReadOnlyDoubleProperty getProgressProperty() {
-		return progressProperty;
+	@Override
+	public void addProgressListener(ProgressListener listener) {
+		progressSupport.addListener(listener);
 	}
 	
-	private void setProgressProperty(double value) {
-		progressProperty.set(value);
+	@Override
+	public void removeProgressListener(ProgressListener listener) {
+		progressSupport.removeListener(listener);
 	}
 	
-	public ReadOnlyStringProperty getStatusProperty() {
-		return statusProperty;
+	private void setProgressProperty(double value) {
+		progressSupport.progressChanged(value);
 	}
 	
 	private void setStatusProperty(String status) {
-		statusProperty.set(status);
+		progressSupport.statusChanged(status);
 	}
 }
@@ -0,0 +1,454 @@
+package de.tum.bio.proteomics.io.fasta;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+import de.tum.bio.proteomics.PackedSequence;
+import de.tum.bio.proteomics.io.fasta.FastaFileReader.DatabaseType;
+import de.tum.bio.utils.ProgressReporter;
+
+/**
+ * Offset table of the entries of a FASTA file by accession, similar to a samtools .fai index.
+ * Each entry stores the residue count, the offset and byte length of its sequence lines and the offset of its header.
+ * Sequences are read on request from the memory-mapped database, so only the table is held on the heap.
+ * The table is persisted next to the database and rebuilt when the database changes.
+ *
+ */
+
+public final class FastaIndex {
+
+	public static final String FILE_EXTENSION = ".idx";
+
+	private static final String SIGNATURE = "#fasta-index";
+	private static final int VERSION = 1;
+	private static final long SEGMENT_SIZE = 1L << 30;
+	private static final int READ_BUFFER_SIZE = 1 << 16;
+
+	private final DatabaseType databaseType;
+	private final HeaderParser headerParser;
+
+	private int size = 0;
+	private String[] ids = new String[1024];
+	private int[] residueCounts = new int[1024];
+	private long[] sequenceOffsets = new long[1024];
+	private int[] byteLengths = new int[1024];
+	private long[] headerOffsets = new long[1024];
+	// Open addressing table of entry positions by accession, -1 for empty slots
+	private int[] slots;
+
+	private MappedByteBuffer[] segments;
+
+	private FastaIndex(DatabaseType databaseType) {
+		this.databaseType = databaseType;
+		this.headerParser = databaseType.getHeaderParser();
+	}
+
+	/**
+	 * Opens the index of a FASTA file. A persisted index is used if it still matches the file, otherwise the index is
+	 * built and persisted. If the index file cannot be written, the built index is only kept in memory.
+	 * @param fastaPath
+	 * @param databaseType
+	 * @param progress receives the progress of building the index
+	 * @return index
+	 * @throws IOException
+	 */
+	public static FastaIndex open(Path fastaPath, DatabaseType databaseType, DoubleConsumer progress) throws IOException {
+		Path indexPath = getIndexPath(fastaPath);
+		FastaIndex index = null;
+		if (Files.isRegularFile(indexPath)) {
+			index = load(indexPath, fastaPath, databaseType);
+		}
+		if (index == null) {
+			index = build(fastaPath, databaseType, progress);
+			try {
+				index.write(indexPath, fastaPath);
+			} catch (IOException e) {
+				// A read-only database directory only costs rebuilding the index next time
+			}
+		}
+		index.map(fastaPath);
+		return index;
+	}
+
+	public static Path getIndexPath(Path fastaPath) {
+		return Paths.get(fastaPath.toString() + FILE_EXTENSION);
+	}
+
+	/**
+	 * Builds the index by scanning the FASTA file once.
+	 * @param fastaPath
+	 * @param databaseType
+	 * @param progress
+	 * @return index without mapped database
+	 * @throws IOException
+	 */
+	static FastaIndex build(Path fastaPath, DatabaseType databaseType, DoubleConsumer progress) throws IOException {
+		FastaIndex index = new FastaIndex(databaseType);
+		EntryScanner scanner = index.new EntryScanner();
+		ProgressReporter progressReporter = ProgressReporter.forBytes(progress, Files.size(fastaPath));
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
+		long position = 0;
+		try (InputStream in = Files.newInputStream(fastaPath)) {
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				int lineStart = 0;
+				for (int i = 0; i < read; i++) {
+					if (buffer[i] == '\n') {
+						scanner.append(buffer, lineStart, i);
+						scanner.endLine(true);
+						lineStart = i + 1;
+					}
+				}
+				scanner.append(buffer, lineStart, read);
+				position += read;
+				progressReporter.update(position);
+			}
+			scanner.endLine(false);
+			scanner.endEntry();
+		}
+		return index;
+	}
+
+	/**
+	 * Loads a persisted index.
+	 * @param indexPath
+	 * @param fastaPath
+	 * @param databaseType
+	 * @return index without mapped database, or null if the index does not match the FASTA file
+	 * @throws IOException
+	 */
+	static FastaIndex load(Path indexPath, Path fastaPath, DatabaseType databaseType) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+			String signature = reader.readLine();
+			if (signature == null || !signature.equals(createSignature(fastaPath, databaseType))) {
+				return null;
+			}
+			FastaIndex index = new FastaIndex(databaseType);
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				String[] fields = line.split("\t", -1);
+				if (fields.length != 5) {
+					return null;
+				}
+				try {
+					index.add(fields[0], Integer.parseInt(fields[1]), Long.parseLong(fields[2]), Integer.parseInt(fields[3]), Long.parseLong(fields[4]));
+				} catch (NumberFormatException e) {
+					return null;
+				}
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Persists the index. The file is written next to its target first, so readers never see a partial index.
+	 * @param indexPath
+	 * @param fastaPath
+	 * @throws IOException
+	 */
+	void write(Path indexPath, Path fastaPath) throws IOException {
+		Path tmpPath = Paths.get(indexPath.toString() + ".tmp");
+		try (BufferedWriter writer = Files.newBufferedWriter(tmpPath, StandardCharsets.UTF_8)) {
+			writer.write(createSignature(fastaPath, databaseType));
+			writer.newLine();
+			StringBuilder line = new StringBuilder();
+			for (int entry = 0; entry < size; entry++) {
+				line.setLength(0);
+				line.append(ids[entry]).append('\t')
+					.append(residueCounts[entry]).append('\t')
+					.append(sequenceOffsets[entry]).append('\t')
+					.append(byteLengths[entry]).append('\t')
+					.append(headerOffsets[entry]);
+				writer.write(line.toString());
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(tmpPath);
+			throw e;
+		}
+		Files.move(tmpPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Gets the sequence of an accession from the database.
+	 * @param id accession
+	 * @return sequence, or null if the accession is not in the database
+	 */
+	public PackedSequence getSequence(String id) {
+		int entry = find(id);
+		if (entry < 0) {
+			return null;
+		}
+		byte[] bytes = read(sequenceOffsets[entry], byteLengths[entry]);
+		// Drop line breaks and the whitespace around each line
+		byte[] residues = new byte[residueCounts[entry]];
+		int residueCount = 0;
+		int lineStart = 0;
+		for (int i = 0; i <= bytes.length; i++) {
+			if (i == bytes.length || bytes[i] == '\n') {
+				int start = lineStart;
+				int end = i;
+				while (start < end && (bytes[start] & 0xff) <= ' ') {
+					start++;
+				}
+				while (end > start && (bytes[end - 1] & 0xff) <= ' ') {
+					end--;
+				}
+				System.arraycopy(bytes, start, residues, residueCount, end - start);
+				residueCount += end - start;
+				lineStart = i + 1;
+			}
+		}
+		return PackedSequence.of(residues, 0, residueCount);
+	}
+
+	/**
+	 * Gets the sequence of a header. Only headers with an accession are indexed.
+	 * @param header trimmed header line
+	 * @return sequence, or null if the header is not in the database
+	 */
+	public PackedSequence getSequenceByHeader(String header) {
+		String id = headerParser.parseAccession(header);
+		int entry = find(id);
+		if (entry < 0 || !header.equals(getHeader(entry))) {
+			return null;
+		}
+		return getSequence(id);
+	}
+
+	/**
+	 * @param id accession
+	 * @return residue count, or -1 if the accession is not in the database
+	 */
+	public int getLength(String id) {
+		int entry = find(id);
+		return entry < 0 ? -1 : residueCounts[entry];
+	}
+
+	public boolean contains(String id) {
+		return find(id) >= 0;
+	}
+
+	/**
+	 * @return indexed accessions in file order, accessions that occur more than once are repeated
+	 */
+	public List<String> getIds() {
+		return Collections.unmodifiableList(Arrays.asList(ids).subList(0, size));
+	}
+
+	/**
+	 * @return number of indexed entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	public DatabaseType getDatabaseType() {
+		return databaseType;
+	}
+
+	private String getHeader(int entry) {
+		byte[] bytes = read(headerOffsets[entry], (int) (sequenceOffsets[entry] - headerOffsets[entry]));
+		return new String(bytes, StandardCharsets.UTF_8).trim();
+	}
+
+	private void add(String id, int residueCount, long sequenceOffset, int byteLength, long headerOffset) {
+		if (size == ids.length) {
+			int capacity = size * 2;
+			ids = Arrays.copyOf(ids, capacity);
+			residueCounts = Arrays.copyOf(residueCounts, capacity);
+			sequenceOffsets = Arrays.copyOf(sequenceOffsets, capacity);
+			byteLengths = Arrays.copyOf(byteLengths, capacity);
+			headerOffsets = Arrays.copyOf(headerOffsets, capacity);
+		}
+		ids[size] = id;
+		residueCounts[size] = residueCount;
+		sequenceOffsets[size] = sequenceOffset;
+		byteLengths[size] = byteLength;
+		headerOffsets[size] = headerOffset;
+		size++;
+		if (slots == null || size * 2 > slots.length) {
+			rehash(Math.max(2048, slots == null ? 0 : slots.length * 2));
+		} else {
+			insert(size - 1);
+		}
+	}
+
+	private void rehash(int capacity) {
+		slots = new int[capacity];
+		Arrays.fill(slots, -1);
+		for (int entry = 0; entry < size; entry++) {
+			insert(entry);
+		}
+	}
+
+	private void insert(int entry) {
+		int mask = slots.length - 1;
+		int slot = mix(ids[entry].hashCode()) & mask;
+		while (slots[slot] >= 0) {
+			if (ids[slots[slot]].equals(ids[entry])) {
+				// Later entries with the same accession win, as in the parsed FASTA file
+				slots[slot] = entry;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = entry;
+	}
+
+	private int find(String id) {
+		if (id == null || slots == null) {
+			return -1;
+		}
+		int mask = slots.length - 1;
+		int slot = mix(id.hashCode()) & mask;
+		while (slots[slot] >= 0) {
+			if (ids[slots[slot]].equals(id)) {
+				return slots[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Maps the database in segments, so databases larger than 2 GB can be read.
+	 * @param fastaPath
+	 * @throws IOException
+	 */
+	private void map(Path fastaPath) throws IOException {
+		// Mappings stay valid after the channel is closed
+		try (FileChannel channel = FileChannel.open(fastaPath, StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			segments = new MappedByteBuffer[(int) ((fileSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+			for (int segment = 0; segment < segments.length; segment++) {
+				long start = segment * SEGMENT_SIZE;
+				segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, fileSize - start));
+			}
+		}
+	}
+
+	private byte[] read(long offset, int length) {
+		byte[] bytes = new byte[length];
+		int copied = 0;
+		try {
+			while (copied < length) {
+				long position = offset + copied;
+				// Duplicates keep concurrent reads independent of each other
+				ByteBuffer segment = segments[(int) (position / SEGMENT_SIZE)].duplicate();
+				segment.position((int) (position % SEGMENT_SIZE));
+				int count = Math.min(length - copied, segment.remaining());
+				segment.get(bytes, copied, count);
+				copied += count;
+			}
+		} catch (RuntimeException e) {
+			// The database was truncated or replaced after it was indexed
+			throw new UncheckedIOException(new IOException("Could not read the FASTA database at offset " + offset + ".", e));
+		}
+		return bytes;
+	}
+
+	private static String createSignature(Path fastaPath, DatabaseType databaseType) throws IOException {
+		return SIGNATURE + "\t" + VERSION + "\t" + databaseType.name() + "\t" + Files.size(fastaPath) + "\t" + Files.getLastModifiedTime(fastaPath).toMillis();
+	}
+
+	private static boolean startsWith(byte[] line, int lineLength, byte[] prefix) {
+		if (lineLength < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (line[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int trimmedLength(byte[] line, int start, int end) {
+		while (start < end && (line[start] & 0xff) <= ' ') {
+			start++;
+		}
+		while (end > start && (line[end - 1] & 0xff) <= ' ') {
+			end--;
+		}
+		return end - start;
+	}
+
+	/**
+	 * Collects the entries of a FASTA file from its lines in file order.
+	 */
+	private final class EntryScanner {
+
+		private final byte[] rowStarter = databaseType.getRowStarter().getBytes(StandardCharsets.UTF_8);
+		private byte[] line = new byte[256];
+		private int lineLength = 0;
+		private long lineStart = 0;
+		// Current entry, its header offset is -1 before the first header and its id null without accession
+		private String id = null;
+		private long headerOffset = -1;
+		private long sequenceOffset = 0;
+		private int residueCount = 0;
+
+		private void append(byte[] bytes, int start, int end) {
+			int length = end - start;
+			if (lineLength + length > line.length) {
+				line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+			}
+			System.arraycopy(bytes, start, line, lineLength, length);
+			lineLength += length;
+		}
+
+		/**
+		 * @param newline whether the line is terminated by a newline, the last line of a file may not be
+		 */
+		private void endLine(boolean newline) {
+			if (!newline && lineLength == 0) {
+				return;
+			}
+			long nextLineStart = lineStart + lineLength + (newline ? 1 : 0);
+			if (startsWith(line, lineLength, rowStarter)) {
+				endEntry();
+				id = headerParser.parseAccession(new String(line, 0, lineLength, StandardCharsets.UTF_8).trim());
+				headerOffset = lineStart;
+				sequenceOffset = nextLineStart;
+				residueCount = 0;
+			} else {
+				residueCount += trimmedLength(line, 0, lineLength);
+			}
+			lineStart = nextLineStart;
+			lineLength = 0;
+		}
+
+		private void endEntry() {
+			if (headerOffset >= 0 && id != null) {
+				add(id, residueCount, sequenceOffset, (int) (lineStart - sequenceOffset), headerOffset);
+			}
+			id = null;
+			headerOffset = -1;
+		}
+	}
+}
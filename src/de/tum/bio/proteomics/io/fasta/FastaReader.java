@@ -1,14 +1,27 @@
 package de.tum.bio.proteomics.io.fasta;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import de.tum.bio.proteomics.FastaFile;
 import de.tum.bio.proteomics.io.fasta.FastaFileReader.DatabaseType;
-import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyStringProperty;
+import de.tum.bio.utils.IOFutures;
+import de.tum.bio.utils.ProgressListener;
 
 public interface FastaReader {
 	public FastaFile read(String filePath, DatabaseType databaseType) throws IOException;
-	public ReadOnlyDoubleProperty getProgressProperty();
-	public ReadOnlyStringProperty getStatusProperty();
+	public void addProgressListener(ProgressListener listener);
+	public void removeProgressListener(ProgressListener listener);
+	
+	/**
+	 * Reads a FASTA file on the given executor. A failed read completes the future with an UncheckedIOException.
+	 * @param filePath
+	 * @param databaseType
+	 * @param executor
+	 * @return future of the FASTA file
+	 */
+	public default CompletableFuture<FastaFile> readAsync(String filePath, DatabaseType databaseType, Executor executor) {
+		return IOFutures.supplyAsync(() -> read(filePath, databaseType), executor);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package de.tum.bio.proteomics.io.fasta;
+
+/**
+ * Extracts the accession from FASTA header lines of one database format.
+ *
+ */
+
+public interface HeaderParser {
+
+	/**
+	 * @param header trimmed header line including the row starter
+	 * @return accession, or null if the header has none
+	 */
+	public String parseAccession(String header);
+
+	/**
+	 * Checks whether a header looks like the format of this parser, used to detect the database type.
+	 * @param header trimmed header line including the row starter
+	 * @return true if the header is in the format of this parser
+	 */
+	public default boolean recognizes(String header) {
+		return parseAccession(header) != null;
+	}
+}
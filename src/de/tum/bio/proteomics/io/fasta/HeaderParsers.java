@@ -0,0 +1,203 @@
+package de.tum.bio.proteomics.io.fasta;
+
+/**
+ * Hand-written header parsers of the supported database formats. They only scan the header once and do not use regular expressions.
+ *
+ */
+
+public final class HeaderParsers {
+
+	/**
+	 * UniProt headers like >sp|P12345|NAME_HUMAN Description, the accession is the first pipe-delimited field
+	 * that consists of letters, then digits and then letters or digits.
+	 */
+	public static final HeaderParser UNIPROT = new HeaderParser() {
+		@Override
+		public String parseAccession(String header) {
+			int rowStart = header.indexOf('>');
+			if (rowStart < 0) {
+				return null;
+			}
+			int start = header.indexOf('|', rowStart + 1);
+			while (start >= 0) {
+				int end = header.indexOf('|', start + 1);
+				if (end < 0) {
+					return null;
+				}
+				if (isUniProtAccession(header, start + 1, end)) {
+					return header.substring(start + 1, end);
+				}
+				start = end;
+			}
+			return null;
+		}
+	};
+
+	/**
+	 * Ensembl headers like >ENSP00000354587.3 pep chromosome:..., the accession is the first token including its version.
+	 */
+	public static final HeaderParser ENSEMBL = new HeaderParser() {
+		@Override
+		public String parseAccession(String header) {
+			return firstToken(header);
+		}
+
+		@Override
+		public boolean recognizes(String header) {
+			String token = firstToken(header);
+			if (token == null || !token.startsWith("ENS")) {
+				return false;
+			}
+			int i = 3;
+			while (i < token.length() && isUpperCase(token.charAt(i))) {
+				i++;
+			}
+			return isVersionedNumber(token, i);
+		}
+	};
+
+	/**
+	 * RefSeq headers like >NP_001123.2 protein name [Homo sapiens], the accession is the first token including its version.
+	 */
+	public static final HeaderParser REFSEQ = new HeaderParser() {
+		@Override
+		public String parseAccession(String header) {
+			return firstToken(header);
+		}
+
+		@Override
+		public boolean recognizes(String header) {
+			String token = firstToken(header);
+			return token != null && token.length() > 3 && isUpperCase(token.charAt(0)) && isUpperCase(token.charAt(1))
+					&& token.charAt(2) == '_' && isVersionedNumber(token, 3);
+		}
+	};
+
+	/**
+	 * NCBI nr headers, either >gi|15674171|ref|NP_266345.1| ... with the accession as fourth field,
+	 * or >WP_003131952.1 ... with further members separated by Ctrl-A and the accession as first token.
+	 */
+	public static final HeaderParser NCBI = new HeaderParser() {
+		@Override
+		public String parseAccession(String header) {
+			int start = tokenStart(header);
+			if (header.startsWith("gi|", start)) {
+				// gi|number|database|accession|
+				int field = start;
+				for (int pipe = 0; pipe < 3 && field >= 0; pipe++) {
+					field = header.indexOf('|', field);
+					field = field < 0 ? -1 : field + 1;
+				}
+				if (field < 0) {
+					return null;
+				}
+				int end = field;
+				while (end < header.length() && header.charAt(end) != '|' && !isSeparator(header.charAt(end))) {
+					end++;
+				}
+				return end > field ? header.substring(field, end) : null;
+			}
+			return firstToken(header);
+		}
+
+		@Override
+		public boolean recognizes(String header) {
+			return header.startsWith("gi|", tokenStart(header)) || header.indexOf('\u0001') >= 0;
+		}
+	};
+
+	/**
+	 * Any header, the accession is the first token.
+	 */
+	public static final HeaderParser GENERIC = new HeaderParser() {
+		@Override
+		public String parseAccession(String header) {
+			return firstToken(header);
+		}
+	};
+
+	private HeaderParsers() {
+		// Static parsers only
+	}
+
+	/**
+	 * @param header
+	 * @return first token after the row starter, or null if the header is empty
+	 */
+	static String firstToken(String header) {
+		int start = tokenStart(header);
+		int end = start;
+		while (end < header.length() && !isSeparator(header.charAt(end))) {
+			end++;
+		}
+		return end > start ? header.substring(start, end) : null;
+	}
+
+	private static int tokenStart(String header) {
+		int start = header.startsWith(">") ? 1 : 0;
+		while (start < header.length() && isSeparator(header.charAt(start))) {
+			start++;
+		}
+		return start;
+	}
+
+	private static boolean isSeparator(char c) {
+		return c <= ' ' || c == '\u0001';
+	}
+
+	private static boolean isUniProtAccession(String header, int start, int end) {
+		int i = start;
+		while (i < end && isLetter(header.charAt(i))) {
+			i++;
+		}
+		if (i == start || i == end || !isDigit(header.charAt(i))) {
+			return false;
+		}
+		for (; i < end; i++) {
+			char c = header.charAt(i);
+			if (!isLetter(c) && !isDigit(c)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param token
+	 * @param start
+	 * @return true if the token continues with digits and optionally a dot and version digits
+	 */
+	private static boolean isVersionedNumber(String token, int start) {
+		int i = start;
+		while (i < token.length() && isDigit(token.charAt(i))) {
+			i++;
+		}
+		if (i == start) {
+			return false;
+		}
+		if (i == token.length()) {
+			return true;
+		}
+		if (token.charAt(i) != '.' || i + 1 == token.length()) {
+			return false;
+		}
+		for (i++; i < token.length(); i++) {
+			if (!isDigit(token.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isUpperCase(char c) {
+		return c >= 'A' && c <= 'Z';
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
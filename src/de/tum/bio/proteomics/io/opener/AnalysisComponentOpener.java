@@ -2,31 +2,24 @@ package de.tum.bio.proteomics.io.opener;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Paths;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import application.Main;
-import de.tum.bio.proteomics.AnalysisSummary;
 import de.tum.bio.proteomics.FastaFile;
 import de.tum.bio.proteomics.PeptideId;
 import de.tum.bio.proteomics.StatisticsFile;
 import de.tum.bio.proteomics.analysis.Analysis;
-import de.tum.bio.proteomics.analysis.AnalysisComponent;
-import de.tum.bio.proteomics.analysis.AnalysisComponentType;
 import de.tum.bio.proteomics.analysis.gui.headerassigner.StatisticsFileHeaderAssigner;
 import de.tum.bio.proteomics.headers.StatisticsTableHeaders;
 import de.tum.bio.proteomics.io.fasta.FastaFileReader;
 import de.tum.bio.proteomics.io.psi.MzIdentMLReader;
-import de.tum.bio.proteomics.io.searchengine.maxquant.MQEvidenceMatcher;
-import de.tum.bio.proteomics.io.searchengine.maxquant.MQModificationsReader;
-import de.tum.bio.proteomics.io.searchengine.maxquant.MQPeptidesReader;
-import de.tum.bio.proteomics.io.searchengine.maxquant.MQProteinGroupsReader;
-import de.tum.bio.proteomics.io.searchengine.maxquant.MQReader;
-import de.tum.bio.proteomics.io.searchengine.maxquant.MQSummaryReader;
+import de.tum.bio.proteomics.io.searchengine.maxquant.MQBatchLoader;
+import de.tum.bio.proteomics.io.searchengine.maxquant.MQCollectionLoader;
 import de.tum.bio.proteomics.io.statistics.StatisticsReader;
 import de.tum.bio.proteomics.io.statistics.perseus.PerseusFileReader;
+import de.tum.bio.utils.ProgressListener;
+import javafx.application.Platform;
 import javafx.concurrent.Task;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
@@ -42,6 +35,17 @@ public final class AnalysisComponentOpener {
 	}
 	
 	public static void getMQCollection(Main mainApp, Analysis analysis) {
+		getMQCollection(mainApp, analysis, false, false);
+	}
+	
+	/**
+	 * Opens a MaxQuant txt directory.
+	 * @param mainApp
+	 * @param analysis
+	 * @param lazyEvidence only index evidence.txt and read the intensities of a protein group when it is shown
+	 * @param tableCache keep the parsed tables in cache files next to the MaxQuant tables
+	 */
+	public static void getMQCollection(Main mainApp, Analysis analysis, boolean lazyEvidence, boolean tableCache) {
 		String txtDirectory = getDirectory(mainApp.getStage());
 		if (txtDirectory != null) {
 			Task<PeptideId> readTask = new Task<PeptideId>() {
@@ -49,48 +53,14 @@ public final class AnalysisComponentOpener {
 				protected PeptideId call() throws Exception {
 					PeptideId peptideId = null;
 					
-						Map<AnalysisComponentType, List<AnalysisComponent>> tMap = new HashMap<>();
-						List<AnalysisComponent> proteinGroupsList = null;
-						MQReader proteinGroupsReader = new MQProteinGroupsReader();
-						proteinGroupsReader.getProgressProperty().addListener((obs, oldProgress, newProgress) -> updateProgress((double) newProgress, 1.0));
-						proteinGroupsReader.getStatusProperty().addListener((obs, oldStatus, newStatus) -> updateMessage(newStatus));
-						
-						proteinGroupsList = proteinGroupsReader.read(txtDirectory, null);
-						
-						List<AnalysisComponent> peptidesList = null;
-						MQReader peptidesReader = new MQPeptidesReader();
-						peptidesReader.getProgressProperty().addListener((obs, oldProgress, newProgress) -> updateProgress((double) newProgress, 1.0));
-						peptidesReader.getStatusProperty().addListener((obs, oldStatus, newStatus) -> updateMessage(newStatus));
-						
-						peptidesList = peptidesReader.read(txtDirectory, null);
-						
-						tMap.put(AnalysisComponentType.MaxQuant_ProteinGroups, proteinGroupsList);
-						tMap.put(AnalysisComponentType.MaxQuant_Peptides, peptidesList);
-						peptideId = new PeptideId(-1, tMap, Paths.get(txtDirectory).getFileName().toString());
-						
-						MQReader summaryReader = new MQSummaryReader();
-						summaryReader.getProgressProperty().addListener((obs, oldProgress, newProgress) -> updateProgress((double) newProgress, 1.0));
-						summaryReader.getStatusProperty().addListener((obs, oldStatus, newStatus) -> updateMessage(newStatus));
-						peptideId.setSummary((AnalysisSummary) summaryReader.read(txtDirectory, null).get(0));
-						
-						// Read modifications
-						MQReader modificationsReader;
-						for (String variableModification : peptideId.getSummary().getVariableModifications()) {
-							modificationsReader = new MQModificationsReader(variableModification);
-							if (modificationsReader.fileExists(txtDirectory, variableModification)) {
-								modificationsReader.getProgressProperty().addListener((obs, oldProgress, newProgress) -> updateProgress((double) newProgress, 1.0));
-								modificationsReader.getStatusProperty().addListener((obs, oldStatus, newStatus) -> updateMessage(newStatus));
-								peptideId.setModifications(variableModification, modificationsReader.read(txtDirectory, null));
-							}
-						}
-						
-						// Match detailed peptide information
-						MQEvidenceMatcher evidenceMatcher = new MQEvidenceMatcher();
-						evidenceMatcher.getProgressProperty().addListener((obs, oldProgress, newProgress) -> updateProgress((double) newProgress, 1.0));
-						evidenceMatcher.getStatusProperty().addListener((obs, oldStatus, newStatus) -> updateMessage(newStatus));
-						evidenceMatcher.match(peptideId, txtDirectory, null);
-						
-						updateMessage("");
+					// Independent files are read concurrently and joined as soon as their inputs are available
+					MQCollectionLoader collectionLoader = new MQCollectionLoader();
+					collectionLoader.setLazyEvidenceEnabled(lazyEvidence);
+					collectionLoader.setCacheEnabled(tableCache);
+					collectionLoader.addProgressListener(ProgressListener.of(value -> updateProgress(value, 1.0), this::updateMessage));
+					peptideId = collectionLoader.load(txtDirectory);
+					
+					updateMessage("");
 					
 					return peptideId;
 				}
@@ -124,6 +94,110 @@ public final class AnalysisComponentOpener {
 		}
 	}
 	
+	/**
+	 * Opens many MaxQuant txt directories at once. Each identification is added to the analysis as soon as it is loaded.
+	 * @param mainApp
+	 * @param analysis
+	 * @param txtDirectories
+	 * @param lazyEvidence only index evidence.txt and read the intensities of a protein group when it is shown
+	 * @param tableCache keep the parsed tables in cache files next to the MaxQuant tables
+	 */
+	public static void getMQCollections(Main mainApp, Analysis analysis, List<String> txtDirectories, boolean lazyEvidence, boolean tableCache) {
+		Task<List<PeptideId>> readTask = new Task<List<PeptideId>>() {
+			@Override
+			protected List<PeptideId> call() throws Exception {
+				MQBatchLoader batchLoader = new MQBatchLoader();
+				batchLoader.setLazyEvidenceEnabled(lazyEvidence);
+				batchLoader.setCacheEnabled(tableCache);
+				batchLoader.addProgressListener(ProgressListener.of(value -> updateProgress(value, 1.0), this::updateMessage));
+				List<PeptideId> peptideIds = batchLoader.load(txtDirectories, peptideId -> Platform.runLater(() -> {
+					analysis.addPeptideId(peptideId);
+					analysis.setDataAssigned(true);
+				}));
+				
+				updateMessage("");
+				
+				return peptideIds;
+			}
+			
+			@Override
+			protected void failed() {
+				super.failed();
+				updateMessage("Cancelled.");
+				updateProgress(0.0, 1.0);
+			}
+		};
+		readTask.setOnFailed(workerStateEvent -> {
+			Alert alert = new Alert(AlertType.ERROR, "An error occured while loading files.\n" + readTask.getException().getMessage(), ButtonType.OK);
+			alert.showAndWait();
+		});
+		readTask.exceptionProperty().addListener((observable, oldValue, newValue) ->  {
+			if(newValue != null) {
+				Exception e = (Exception) newValue;
+			    e.printStackTrace();
+			}
+		});
+		mainApp.getProgressBar().progressProperty().bind(readTask.progressProperty());
+		mainApp.getStatusLabel().textProperty().bind(readTask.messageProperty());
+		
+		Thread t = new Thread(readTask);
+		t.start();
+	}
+	
+	/**
+	 * Merges the files of the MaxQuant directory of an identification that changed since it was opened.
+	 * @param mainApp
+	 * @param peptideId
+	 * @param tableCache keep the parsed tables in cache files next to the MaxQuant tables
+	 */
+	public static void refreshMQCollection(Main mainApp, PeptideId peptideId, boolean tableCache) {
+		Task<MQCollectionLoader.Changes> refreshTask = new Task<MQCollectionLoader.Changes>() {
+			@Override
+			protected MQCollectionLoader.Changes call() throws Exception {
+				MQCollectionLoader collectionLoader = new MQCollectionLoader();
+				collectionLoader.setCacheEnabled(tableCache);
+				// Strings of the new rows are shared with those already held by the identification
+				collectionLoader.setStringPool(peptideId.getStringPool());
+				collectionLoader.addProgressListener(ProgressListener.of(value -> updateProgress(value, 1.0), this::updateMessage));
+				MQCollectionLoader.Changes changes = collectionLoader.readChanges(peptideId);
+				
+				updateMessage("");
+				
+				return changes;
+			}
+			
+			@Override
+			protected void succeeded() {
+				super.succeeded();
+				// The identification is observed by the tables, so it is only modified on the application thread
+				getValue().apply();
+				mainApp.refreshTables(peptideId);
+			}
+			
+			@Override
+			protected void failed() {
+				super.failed();
+				updateMessage("Cancelled.");
+				updateProgress(0.0, 1.0);
+			}
+		};
+		refreshTask.setOnFailed(workerStateEvent -> {
+			Alert alert = new Alert(AlertType.ERROR, "An error occured while refreshing files.\n" + refreshTask.getException().getMessage(), ButtonType.OK);
+			alert.showAndWait();
+		});
+		refreshTask.exceptionProperty().addListener((observable, oldValue, newValue) ->  {
+			if(newValue != null) {
+				Exception e = (Exception) newValue;
+			    e.printStackTrace();
+			}
+		});
+		mainApp.getProgressBar().progressProperty().bind(refreshTask.progressProperty());
+		mainApp.getStatusLabel().textProperty().bind(refreshTask.messageProperty());
+		
+		Thread t = new Thread(refreshTask);
+		t.start();
+	}
+	
 	public static void getPerseusCollection(Main mainApp, Analysis analysis) {
 		String filePath = getFile(mainApp.getStage());
 		if (filePath != null) {
@@ -136,8 +210,7 @@ public final class AnalysisComponentOpener {
 						StatisticsFile statisticsFile = null;
 						StatisticsReader perseusReader = new PerseusFileReader();
 						try {
-							perseusReader.getProgressProperty().addListener((obs, oldProgress, newProgress) -> updateProgress((double) newProgress, 1.0));
-							perseusReader.getStatusProperty().addListener((obs, oldStatus, newStatus) -> updateMessage(newStatus));
+							perseusReader.addProgressListener(ProgressListener.of(value -> updateProgress(value, 1.0), this::updateMessage));
 							statisticsFile = perseusReader.read(filePath, headerMap);
 						} catch (IOException e) {
 							Alert alert = new Alert(AlertType.ERROR, e.getMessage(), ButtonType.OK);
@@ -211,6 +284,16 @@ public final class AnalysisComponentOpener {
 	}
 	
 	public static void getFastaCollection(Main mainApp, Analysis analysis) {
+		getFastaCollection(mainApp, analysis, false);
+	}
+	
+	/**
+	 * Opens a fasta file.
+	 * @param mainApp
+	 * @param analysis
+	 * @param indexedFasta only index the database and read sequences from the file when they are needed
+	 */
+	public static void getFastaCollection(Main mainApp, Analysis analysis, boolean indexedFasta) {
 		String filePath = getFile(mainApp.getStage());
 		if (filePath != null) {
 			Task<FastaFile> readTask = new Task<FastaFile>() {
@@ -219,10 +302,9 @@ public final class AnalysisComponentOpener {
 					FastaFile fastaFile = null;
 					try {
 						FastaFileReader fastaFileReader = new FastaFileReader();
-						fastaFileReader.getProgressProperty().addListener((obs, oldProgress, newProgress) -> updateProgress((double) newProgress, 1.0));
-						//fastaFileReader.getProgressProperty().addListener((obs, oldProgress, newProgress) -> System.out.println(newProgress));
-						fastaFileReader.getStatusProperty().addListener((obs, oldStatus, newStatus) -> updateMessage(newStatus));
-						// Todo: Select database type
+						fastaFileReader.setIndexEnabled(indexedFasta);
+						fastaFileReader.addProgressListener(ProgressListener.of(value -> updateProgress(value, 1.0), this::updateMessage));
+						// The database type is detected from the first headers
 						fastaFile = fastaFileReader.read(filePath, null);
 					} catch (IOException e) {
 						Alert alert = new Alert(AlertType.ERROR, e.getMessage(), ButtonType.OK);
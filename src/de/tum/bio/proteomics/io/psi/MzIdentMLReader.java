@@ -6,18 +6,13 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 
 import de.tum.bio.proteomics.PeptideId;
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyStringProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
+import de.tum.bio.utils.ProgressListener;
+import de.tum.bio.utils.ProgressSupport;
 import uk.ac.ebi.pride.utilities.data.controller.impl.ControllerImpl.MzIdentMLControllerImpl;
 
 public class MzIdentMLReader {
 	
-	private DoubleProperty progressProperty = new SimpleDoubleProperty();
-	private StringProperty statusProperty = new SimpleStringProperty();
+	private ProgressSupport progressSupport = new ProgressSupport();
 	
 	private MzIdentMLControllerImpl mzIdentMlController = null;
 	
@@ -45,22 +40,22 @@ public class MzIdentMLReader {
 		return peptideId;
 	}
 	
-	public ReadOnlyDoubleProperty getProgressProperty() {
-		return progressProperty;
+	public void addProgressListener(ProgressListener listener) {
+		progressSupport.addListener(listener);
 	}
 	
-	@SuppressWarnings("unused")
-	private void setProgressProperty(double value) {
-		progressProperty.set(value);
+	public void removeProgressListener(ProgressListener listener) {
+		progressSupport.removeListener(listener);
 	}
 	
-	public ReadOnlyStringProperty getStatusProperty() {
-		return statusProperty;
+	@SuppressWarnings("unused")
+	private void setProgressProperty(double value) {
+		progressSupport.progressChanged(value);
 	}
 	
 	@SuppressWarnings("unused")
 	private void setStatusProperty(String status) {
-		statusProperty.set(status);
+		progressSupport.statusChanged(status);
 	}
 	
 }
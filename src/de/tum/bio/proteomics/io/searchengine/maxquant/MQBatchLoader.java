@@ -0,0 +1,200 @@
+package de.tum.bio.proteomics.io.searchengine.maxquant;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import de.tum.bio.proteomics.PeptideId;
+import de.tum.bio.utils.IOFutures;
+import de.tum.bio.utils.ProgressAggregator;
+import de.tum.bio.utils.ProgressListener;
+import de.tum.bio.utils.ProgressSupport;
+import de.tum.bio.utils.RowFilter;
+import de.tum.bio.utils.StringPool;
+
+/**
+ * Loads many MaxQuant txt directories, e.g. all runs of a study.
+ * Directories are loaded concurrently, but all reading and matching steps share one bounded set of threads,
+ * which may also be supplied by the caller.
+ * Protein names, sequences, experiments and other repeated values are stored once for all directories.
+ *
+ */
+
+public class MQBatchLoader extends MQTablesIO {
+
+	private int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+	private int parallelDirectories = 4;
+	private boolean lazyEvidenceEnabled = false;
+
+	private ProgressSupport progressSupport = new ProgressSupport();
+
+	public MQBatchLoader() {
+		setStringPool(new StringPool());
+	}
+
+	/**
+	 * Sets the number of threads reading and matching files of all directories.
+	 * @param threads
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Sets the number of directories loaded at the same time. More directories keep the threads busy,
+	 * fewer directories finish the first identifications earlier.
+	 * @param parallelDirectories
+	 */
+	public void setParallelDirectories(int parallelDirectories) {
+		this.parallelDirectories = Math.max(1, parallelDirectories);
+	}
+
+	public int getParallelDirectories() {
+		return parallelDirectories;
+	}
+
+	public void setLazyEvidenceEnabled(boolean lazyEvidenceEnabled) {
+		this.lazyEvidenceEnabled = lazyEvidenceEnabled;
+	}
+
+	public boolean isLazyEvidenceEnabled() {
+		return lazyEvidenceEnabled;
+	}
+
+	/**
+	 * Loads directories and passes each identification on as soon as it is complete. Directories that cannot be read
+	 * do not stop the others, their errors are thrown after all directories were tried.
+	 * @param txtDirectories
+	 * @param consumer receives each identification on the thread that loaded it, may be null
+	 * @return identifications in the order of the directories
+	 * @throws IOException if any directory could not be read
+	 */
+	public List<PeptideId> load(List<String> txtDirectories, Consumer<PeptideId> consumer) throws IOException {
+		ExecutorService workers = MQCollectionLoader.newExecutor(threads);
+		try {
+			return IOFutures.await(loadAsync(txtDirectories, consumer, workers));
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Starts loading directories on the given executor and returns without waiting. A directory is started whenever
+	 * one of the parallel directories finishes, so no thread is blocked while waiting for files.
+	 * @param txtDirectories
+	 * @param consumer receives each identification on the thread that loaded it, may be null
+	 * @param executor runs the reading and matching steps of all directories
+	 * @return future of the identifications in the order of the directories, completed with an UncheckedIOException
+	 * listing all failed directories if any directory could not be read
+	 */
+	public CompletableFuture<List<PeptideId>> loadAsync(List<String> txtDirectories, Consumer<PeptideId> consumer, Executor executor) {
+		ProgressAggregator progress = new ProgressAggregator(this::setProgressProperty);
+		List<MQCollectionLoader> collectionLoaders = new ArrayList<>();
+		List<Integer> parts = new ArrayList<>();
+		List<CompletableFuture<PeptideId>> futures = new ArrayList<>();
+		for (String txtDirectory : txtDirectories) {
+			int part = progress.addPart(MQCollectionLoader.getSize(txtDirectory, FILENAME_EVIDENCE)
+					+ MQCollectionLoader.getSize(txtDirectory, FILENAME_PEPTIDES) + MQCollectionLoader.getSize(txtDirectory, FILENAME_PROTEINGROUPS));
+			MQCollectionLoader collectionLoader = configure(new MQCollectionLoader());
+			collectionLoader.addProgressListener(ProgressListener.of(value -> progress.update(part, value), this::setStatus));
+			collectionLoaders.add(collectionLoader);
+			parts.add(part);
+			futures.add(new CompletableFuture<>());
+		}
+
+		AtomicInteger nextDirectory = new AtomicInteger();
+		Runnable startNext = new Runnable() {
+			@Override
+			public void run() {
+				int directory = nextDirectory.getAndIncrement();
+				if (directory >= txtDirectories.size()) {
+					return;
+				}
+				collectionLoaders.get(directory).loadAsync(txtDirectories.get(directory), executor).whenComplete((peptideId, failure) -> {
+					if (failure == null) {
+						try {
+							progress.complete(parts.get(directory));
+							if (consumer != null) {
+								consumer.accept(peptideId);
+							}
+							futures.get(directory).complete(peptideId);
+						} catch (RuntimeException e) {
+							futures.get(directory).completeExceptionally(e);
+						}
+					} else {
+						futures.get(directory).completeExceptionally(failure);
+					}
+					run();
+				});
+			}
+		};
+		for (int directory = 0; directory < Math.min(parallelDirectories, txtDirectories.size()); directory++) {
+			startNext.run();
+		}
+
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).handle((done, ignored) -> {
+			List<PeptideId> peptideIds = new ArrayList<>();
+			IOException failure = null;
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					peptideIds.add(IOFutures.await(futures.get(i)));
+				} catch (IOException e) {
+					if (failure == null) {
+						failure = new IOException("Could not load " + txtDirectories.get(i) + ": " + e.getMessage(), e);
+					} else {
+						failure.addSuppressed(e);
+					}
+				}
+			}
+			if (failure != null) {
+				throw new UncheckedIOException(failure);
+			}
+			return peptideIds;
+		}).whenComplete((peptideIds, failure) -> {
+			setProgressProperty(0.0);
+			setStatusProperty("");
+		});
+	}
+
+	private MQCollectionLoader configure(MQCollectionLoader collectionLoader) {
+		collectionLoader.setCacheEnabled(isCacheEnabled());
+		collectionLoader.setStringPool(getStringPool());
+		collectionLoader.setLazyEvidenceEnabled(lazyEvidenceEnabled);
+		for (RowFilter rowFilter : getRowFilters()) {
+			collectionLoader.addRowFilter(rowFilter);
+		}
+		return collectionLoader;
+	}
+
+	public void addProgressListener(ProgressListener listener) {
+		progressSupport.addListener(listener);
+	}
+
+	public void removeProgressListener(ProgressListener listener) {
+		progressSupport.removeListener(listener);
+	}
+
+	private synchronized void setProgressProperty(double value) {
+		progressSupport.progressChanged(value);
+	}
+
+	private synchronized void setStatusProperty(String status) {
+		progressSupport.statusChanged(status);
+	}
+
+	private synchronized void setStatus(String status) {
+		if (status != null && !status.isEmpty()) {
+			setStatusProperty(status);
+		}
+	}
+}
@@ -0,0 +1,459 @@
+package de.tum.bio.proteomics.io.searchengine.maxquant;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.tum.bio.proteomics.AnalysisSummary;
+import de.tum.bio.proteomics.FeatureProvider;
+import de.tum.bio.proteomics.IntensityMatrix;
+import de.tum.bio.proteomics.Peptide;
+import de.tum.bio.proteomics.PeptideId;
+import de.tum.bio.proteomics.analysis.AnalysisComponent;
+import de.tum.bio.proteomics.analysis.AnalysisComponentType;
+import de.tum.bio.proteomics.io.searchengine.maxquant.MQEvidenceMatcher.EvidenceIntensities;
+import de.tum.bio.utils.IOFutures;
+import de.tum.bio.utils.ProgressAggregator;
+import de.tum.bio.utils.ProgressListener;
+import de.tum.bio.utils.ProgressSupport;
+import de.tum.bio.utils.RowFilter;
+
+/**
+ * Loads a MaxQuant txt directory into a PeptideId.
+ * The files are read as a dependency graph: proteinGroups, peptides, summary and evidence are parsed concurrently,
+ * the Sites files start as soon as the summary names the variable modifications, and the PeptideId is assembled,
+ * annotated with modifications and matched with the evidence once the respective inputs are available.
+ * Progress is combined over all files, weighted by their size. The loader does not depend on JavaFX, so it can run
+ * in batch jobs as well, user interfaces adapt its future and progress listeners.
+ *
+ */
+
+public class MQCollectionLoader extends MQTablesIO {
+
+	private static final int LOAD_THREADS = 4;
+
+	private ProgressSupport progressSupport = new ProgressSupport();
+	private boolean lazyEvidenceEnabled = false;
+
+	public MQCollectionLoader() {
+		// empty
+	}
+
+	/**
+	 * Only indexes evidence.txt instead of summing up all intensities. Intensities and features of a protein group
+	 * are read by PeptideId.loadEvidence() when it is first shown.
+	 * @param lazyEvidenceEnabled
+	 */
+	public void setLazyEvidenceEnabled(boolean lazyEvidenceEnabled) {
+		this.lazyEvidenceEnabled = lazyEvidenceEnabled;
+	}
+
+	public boolean isLazyEvidenceEnabled() {
+		return lazyEvidenceEnabled;
+	}
+
+	public PeptideId load(String txtDirectory) throws IOException {
+		ExecutorService executor = newExecutor(LOAD_THREADS);
+		try {
+			return IOFutures.await(loadAsync(txtDirectory, executor));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Starts loading a directory and returns without waiting for any file.
+	 * @param txtDirectory
+	 * @param executor runs the reading and matching steps, may be shared with other loaders
+	 * @return future of the identification, a failed read completes it with an UncheckedIOException
+	 */
+	public CompletableFuture<PeptideId> loadAsync(String txtDirectory, Executor executor) {
+		ProgressAggregator progress = new ProgressAggregator(this::setProgressProperty);
+		// States are taken before reading, so files changing while they are read are refreshed later
+		Map<String, String> fileStates;
+		try {
+			fileStates = readFileStates(txtDirectory);
+		} catch (IOException e) {
+			CompletableFuture<PeptideId> failed = new CompletableFuture<>();
+			failed.completeExceptionally(new UncheckedIOException(e));
+			return failed;
+		}
+		CompletableFuture<List<AnalysisComponent>> proteinGroups = readAsync(new MQProteinGroupsReader(), txtDirectory, FILENAME_PROTEINGROUPS, progress, executor);
+		CompletableFuture<List<AnalysisComponent>> peptides = readAsync(new MQPeptidesReader(), txtDirectory, FILENAME_PEPTIDES, progress, executor);
+		CompletableFuture<AnalysisSummary> summary = readAsync(new MQSummaryReader(), txtDirectory, FILENAME_SUMMARY, progress, executor)
+				.thenApply(list -> (AnalysisSummary) list.get(0));
+
+		MQEvidenceMatcher evidenceReader = configure(new MQEvidenceMatcher());
+		int evidenceReadPart = progress.addPart(getSize(txtDirectory, FILENAME_EVIDENCE));
+		int evidenceMatchPart = progress.addPart(getSize(txtDirectory, FILENAME_EVIDENCE));
+		evidenceReader.addProgressListener(ProgressListener.of(value -> progress.update(evidenceReadPart, value), this::setStatus));
+		// Modifications can only be read once the summary lists them
+		CompletableFuture<Map<String, List<AnalysisComponent>>> modifications = summary
+				.thenComposeAsync(analysisSummary -> readModificationsAsync(analysisSummary.getVariableModifications(), txtDirectory, progress, executor), executor);
+
+		CompletableFuture<PeptideId> peptideId = proteinGroups
+				.thenCombine(peptides, (proteinGroupsList, peptidesList) -> {
+					Map<AnalysisComponentType, List<AnalysisComponent>> tMap = new HashMap<>();
+					tMap.put(AnalysisComponentType.MaxQuant_ProteinGroups, proteinGroupsList);
+					tMap.put(AnalysisComponentType.MaxQuant_Peptides, peptidesList);
+					String name = Paths.get(txtDirectory).getFileName().toString();
+					if (getStringPool() != null) {
+						return new PeptideId(-1, tMap, name, getStringPool());
+					}
+					return new PeptideId(-1, tMap, name);
+				})
+				.thenCombine(summary, (newPeptideId, analysisSummary) -> {
+					newPeptideId.setSummary(analysisSummary);
+					return newPeptideId;
+				})
+				.thenCombine(modifications, (newPeptideId, modificationsMap) -> {
+					newPeptideId.setModifications(modificationsMap);
+					return newPeptideId;
+				});
+
+		CompletableFuture<PeptideId> loadedPeptideId;
+		if (lazyEvidenceEnabled) {
+			CompletableFuture<MQLazyEvidence> lazyEvidence = IOFutures.supplyAsync(() -> {
+				MQLazyEvidence evidenceIndex = evidenceReader.readIndex(txtDirectory, null);
+				progress.complete(evidenceReadPart);
+				return evidenceIndex;
+			}, executor);
+			loadedPeptideId = peptideId.thenCombine(lazyEvidence, (newPeptideId, evidenceIndex) -> {
+				newPeptideId.setFeatureProvider(evidenceIndex);
+				newPeptideId.setSource(txtDirectory, fileStates);
+				progress.complete(evidenceMatchPart);
+				return newPeptideId;
+			});
+		} else {
+			CompletableFuture<EvidenceIntensities> evidenceIntensities = IOFutures.supplyAsync(() -> {
+				EvidenceIntensities intensities = evidenceReader.readIntensities(txtDirectory, null);
+				progress.complete(evidenceReadPart);
+				return intensities;
+			}, executor);
+
+			// Match detailed peptide information
+			loadedPeptideId = peptideId.thenCombineAsync(evidenceIntensities, (newPeptideId, intensities) -> {
+				MQEvidenceMatcher evidenceMatcher = configure(new MQEvidenceMatcher());
+				evidenceMatcher.addProgressListener(ProgressListener.of(value -> progress.update(evidenceMatchPart, value), this::setStatus));
+				evidenceMatcher.match(newPeptideId, intensities);
+				newPeptideId.setSource(txtDirectory, fileStates);
+				progress.complete(evidenceMatchPart);
+				return newPeptideId;
+			}, executor);
+		}
+		return loadedPeptideId.whenComplete((newPeptideId, failure) -> {
+			setProgressProperty(0.0);
+			setStatusProperty("");
+		});
+	}
+
+	/**
+	 * Reads the files of the directory of a PeptideId again that changed since it was loaded or refreshed, e.g. after
+	 * MaxQuant was rerun with other settings or more raw files. Changes are merged into the PeptideId by ID, so its
+	 * selections, sequences and statistics are kept. Peptides are replaced with their modifications assigned again if
+	 * peptides, the summary or Sites files changed. Intensities are matched again if peptides, evidences or the summary
+	 * changed, in the evidence mode the PeptideId was loaded with.
+	 * The PeptideId is modified on the calling thread, use readChanges() and Changes.apply() to read in the background.
+	 * @param peptideId identification loaded by this class
+	 * @return the updated identification
+	 * @throws IOException
+	 */
+	public PeptideId refresh(PeptideId peptideId) throws IOException {
+		return readChanges(peptideId).apply();
+	}
+
+	/**
+	 * Reads the files of the directory of a PeptideId that changed since it was loaded or refreshed, without modifying it.
+	 * Modifications and intensities are assigned to the newly read peptides here, so only replacing the changed objects
+	 * is left to Changes.apply().
+	 * @param peptideId identification loaded by this class
+	 * @return changes to merge into the identification
+	 * @throws IOException
+	 */
+	public Changes readChanges(PeptideId peptideId) throws IOException {
+		String txtDirectory = peptideId.getSourceDirectory();
+		if (txtDirectory == null) {
+			throw new IOException(peptideId + " was not loaded from a MaxQuant directory.");
+		}
+		Map<String, String> oldStates = peptideId.getSourceFileStates();
+		Map<String, String> fileStates = readFileStates(txtDirectory);
+		boolean proteinGroupsChanged = isChanged(oldStates, fileStates, FILENAME_PROTEINGROUPS);
+		boolean peptidesChanged = isChanged(oldStates, fileStates, FILENAME_PEPTIDES);
+		boolean summaryChanged = isChanged(oldStates, fileStates, FILENAME_SUMMARY);
+		boolean evidenceChanged = isChanged(oldStates, fileStates, FILENAME_EVIDENCE);
+		boolean sitesChanged = false;
+		Set<String> fileNames = new HashSet<>(oldStates.keySet());
+		fileNames.addAll(fileStates.keySet());
+		for (String fileName : fileNames) {
+			if (fileName.endsWith(FILEAPPENDIX_MODIFICATIONS) && isChanged(oldStates, fileStates, fileName)) {
+				sitesChanged = true;
+			}
+		}
+		Changes changes = new Changes(peptideId, fileStates);
+		// Modifications are assigned to new peptide objects only, as the current ones are shown
+		boolean modificationsChanged = peptidesChanged || summaryChanged || sitesChanged;
+		// Rows of the intensity matrix follow the peptides, columns the experiments
+		changes.rematch = peptidesChanged || summaryChanged || evidenceChanged;
+		boolean lazyEvidence = peptideId.hasLazyEvidence();
+
+		ExecutorService executor = newExecutor(LOAD_THREADS);
+		ProgressAggregator progress = new ProgressAggregator(this::setProgressProperty);
+		try {
+			CompletableFuture<List<AnalysisComponent>> proteinGroups = proteinGroupsChanged
+					? readAsync(new MQProteinGroupsReader(), txtDirectory, FILENAME_PROTEINGROUPS, progress, executor) : CompletableFuture.completedFuture(null);
+			CompletableFuture<List<AnalysisComponent>> peptides = modificationsChanged
+					? readAsync(new MQPeptidesReader(), txtDirectory, FILENAME_PEPTIDES, progress, executor) : CompletableFuture.completedFuture(null);
+			CompletableFuture<List<AnalysisComponent>> summary = summaryChanged
+					? readAsync(new MQSummaryReader(), txtDirectory, FILENAME_SUMMARY, progress, executor) : CompletableFuture.completedFuture(null);
+
+			MQEvidenceMatcher evidenceReader = configure(new MQEvidenceMatcher());
+			CompletableFuture<MQLazyEvidence> lazyEvidenceIndex = CompletableFuture.completedFuture(null);
+			CompletableFuture<EvidenceIntensities> evidenceIntensities = CompletableFuture.completedFuture(null);
+			// Lazy evidences only need a new index if evidence.txt itself changed
+			if ((lazyEvidence && evidenceChanged) || (!lazyEvidence && changes.rematch)) {
+				int evidenceReadPart = progress.addPart(getSize(txtDirectory, FILENAME_EVIDENCE));
+				evidenceReader.addProgressListener(ProgressListener.of(value -> progress.update(evidenceReadPart, value), this::setStatus));
+				if (lazyEvidence) {
+					lazyEvidenceIndex = IOFutures.supplyAsync(() -> evidenceReader.readIndex(txtDirectory, null), executor);
+				} else {
+					evidenceIntensities = IOFutures.supplyAsync(() -> evidenceReader.readIntensities(txtDirectory, null), executor);
+				}
+			}
+
+			AnalysisSummary analysisSummary = summaryChanged ? (AnalysisSummary) IOFutures.await(summary).get(0) : peptideId.getSummary();
+			CompletableFuture<Map<String, List<AnalysisComponent>>> modifications = CompletableFuture.completedFuture(null);
+			if (modificationsChanged) {
+				modifications = readModificationsAsync(analysisSummary.getVariableModifications(), txtDirectory, progress, executor);
+			}
+
+			changes.summary = summaryChanged ? analysisSummary : null;
+			changes.proteinGroups = IOFutures.await(proteinGroups);
+			changes.peptides = IOFutures.await(peptides);
+			changes.lazyEvidenceIndex = IOFutures.await(lazyEvidenceIndex);
+
+			Collection<Peptide> matchedPeptides = peptideId.getAllPeptides().values();
+			int ordinalCount = peptideId.getOrdinalCount();
+			if (changes.peptides != null) {
+				setStatus("Assigning modifications...");
+				ordinalCount = peptideId.preparePeptides(changes.peptides, IOFutures.await(modifications));
+				matchedPeptides = new ArrayList<>();
+				for (AnalysisComponent component : changes.peptides) {
+					matchedPeptides.add((Peptide) component);
+				}
+			}
+			if (changes.rematch && !lazyEvidence) {
+				List<String> experiments = summaryChanged ? new ArrayList<>(analysisSummary.getExperimentNames()) : peptideId.getExperimentNames();
+				changes.experimentIntensities = configure(new MQEvidenceMatcher()).createMatrix(matchedPeptides, ordinalCount, experiments,
+						IOFutures.await(evidenceIntensities));
+			}
+			return changes;
+		} finally {
+			executor.shutdownNow();
+			setProgressProperty(0.0);
+			setStatusProperty("");
+		}
+	}
+
+	/**
+	 * Files of a MaxQuant directory read by readChanges(), null where a file did not change.
+	 */
+	public final class Changes {
+
+		private final PeptideId peptideId;
+		private final Map<String, String> fileStates;
+		private AnalysisSummary summary;
+		private List<AnalysisComponent> proteinGroups;
+		private List<AnalysisComponent> peptides;
+		private MQLazyEvidence lazyEvidenceIndex;
+		private IntensityMatrix experimentIntensities;
+		private boolean rematch;
+
+		private Changes(PeptideId peptideId, Map<String, String> fileStates) {
+			this.peptideId = peptideId;
+			this.fileStates = fileStates;
+		}
+
+		/**
+		 * Merges the changes into the identification. Its maps are observed by the user interface, so this has to run
+		 * on the thread that shows it, e.g. the JavaFX application thread. Only the prepared objects are swapped in here.
+		 * @return the updated identification
+		 */
+		public PeptideId apply() {
+			// Merge in dependency order
+			if (summary != null) {
+				peptideId.setSummary(summary);
+			}
+			if (proteinGroups != null) {
+				peptideId.updateProteinGroups(proteinGroups);
+			}
+			if (peptides != null) {
+				peptideId.updatePeptides(peptides);
+			}
+			if (rematch) {
+				if (peptideId.hasLazyEvidence()) {
+					FeatureProvider featureProvider = lazyEvidenceIndex != null ? lazyEvidenceIndex : peptideId.getFeatureProvider();
+					peptideId.setFeatureProvider(featureProvider);
+				} else {
+					peptideId.setExperimentIntensities(experimentIntensities);
+				}
+			}
+			peptideId.setSource(peptideId.getSourceDirectory(), fileStates);
+			return peptideId;
+		}
+	}
+
+	/**
+	 * Gets the states of the files of a MaxQuant directory that are read, including all Sites files.
+	 * @param txtDirectory
+	 * @return size and modification time by file name
+	 * @throws IOException
+	 */
+	private static Map<String, String> readFileStates(String txtDirectory) throws IOException {
+		Map<String, String> fileStates = new HashMap<>();
+		for (String fileName : new String[] {FILENAME_PROTEINGROUPS, FILENAME_PEPTIDES, FILENAME_EVIDENCE, FILENAME_SUMMARY}) {
+			fileStates.put(fileName, getState(Paths.get(txtDirectory, fileName)));
+		}
+		try (DirectoryStream<Path> sitesFiles = Files.newDirectoryStream(Paths.get(txtDirectory), "*" + FILEAPPENDIX_MODIFICATIONS)) {
+			for (Path path : sitesFiles) {
+				fileStates.put(path.getFileName().toString(), getState(path));
+			}
+		}
+		return fileStates;
+	}
+
+	private static String getState(Path path) throws IOException {
+		if (!Files.exists(path)) {
+			return "missing";
+		}
+		return Files.size(path) + "/" + Files.getLastModifiedTime(path).toMillis();
+	}
+
+	private static boolean isChanged(Map<String, String> oldStates, Map<String, String> newStates, String fileName) {
+		return !Objects.equals(oldStates.get(fileName), newStates.get(fileName));
+	}
+
+	/**
+	 * Starts reading the Sites files of all variable modifications that have one.
+	 * @param variableModifications
+	 * @param txtDirectory
+	 * @param progress
+	 * @param executor
+	 * @return future of the modifications by name, in the order of the summary
+	 */
+	private CompletableFuture<Map<String, List<AnalysisComponent>>> readModificationsAsync(List<String> variableModifications, String txtDirectory,
+			ProgressAggregator progress, Executor executor) {
+		Map<String, CompletableFuture<List<AnalysisComponent>>> futures = new LinkedHashMap<>();
+		for (String variableModification : variableModifications) {
+			MQReader modificationsReader = new MQModificationsReader(variableModification);
+			if (modificationsReader.fileExists(txtDirectory, variableModification)) {
+				futures.put(variableModification, readAsync(modificationsReader, txtDirectory, variableModification + FILEAPPENDIX_MODIFICATIONS, progress, executor));
+			}
+		}
+		return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[futures.size()])).thenApply(done -> {
+			Map<String, List<AnalysisComponent>> modifications = new LinkedHashMap<>();
+			for (Map.Entry<String, CompletableFuture<List<AnalysisComponent>>> entry : futures.entrySet()) {
+				modifications.put(entry.getKey(), entry.getValue().join());
+			}
+			return modifications;
+		});
+	}
+
+	/**
+	 * Starts a reader on the executor and adds its file as a part of the combined progress.
+	 * @param reader
+	 * @param txtDirectory
+	 * @param fileName used to weight the progress of the reader
+	 * @param progress
+	 * @param executor
+	 * @return future of the read components
+	 */
+	private CompletableFuture<List<AnalysisComponent>> readAsync(MQReader reader, String txtDirectory, String fileName,
+			ProgressAggregator progress, Executor executor) {
+		configure(reader);
+		int part = progress.addPart(getSize(txtDirectory, fileName));
+		reader.addProgressListener(ProgressListener.of(value -> progress.update(part, value), this::setStatus));
+		return IOFutures.supplyAsync(() -> {
+			List<AnalysisComponent> components = reader.read(txtDirectory, null);
+			progress.complete(part);
+			return components;
+		}, executor);
+	}
+
+	static ExecutorService newExecutor(int threads) {
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "MaxQuant loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private <T extends MQReader> T configure(T reader) {
+		reader.setCacheEnabled(isCacheEnabled());
+		reader.setStringPool(getStringPool());
+		for (RowFilter rowFilter : getRowFilters()) {
+			reader.addRowFilter(rowFilter);
+		}
+		return reader;
+	}
+
+	private MQEvidenceMatcher configure(MQEvidenceMatcher evidenceMatcher) {
+		evidenceMatcher.setCacheEnabled(isCacheEnabled());
+		for (RowFilter rowFilter : getRowFilters()) {
+			evidenceMatcher.addRowFilter(rowFilter);
+		}
+		return evidenceMatcher;
+	}
+
+	static long getSize(String txtDirectory, String fileName) {
+		Path path = Paths.get(txtDirectory, fileName);
+		try {
+			return Files.size(path);
+		} catch (IOException e) {
+			// Missing files are reported by their readers
+			return 0;
+		}
+	}
+
+	public void addProgressListener(ProgressListener listener) {
+		progressSupport.addListener(listener);
+	}
+
+	public void removeProgressListener(ProgressListener listener) {
+		progressSupport.removeListener(listener);
+	}
+
+	private synchronized void setProgressProperty(double value) {
+		progressSupport.progressChanged(value);
+	}
+
+	private synchronized void setStatusProperty(String status) {
+		progressSupport.statusChanged(status);
+	}
+
+	/**
+	 * Shows the latest status of any running step. Steps clear their status when they finish, which is skipped
+	 * so the status of the remaining steps stays visible.
+	 * @param status
+	 */
+	private synchronized void setStatus(String status) {
+		if (status != null && !status.isEmpty()) {
+			setStatusProperty(status);
+		}
+	}
+}
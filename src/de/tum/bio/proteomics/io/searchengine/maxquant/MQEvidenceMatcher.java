@@ -1,131 +1,372 @@
 package de.tum.bio.proteomics.io.searchengine.maxquant;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
-import de.tum.bio.proteomics.Feature;
+import de.tum.bio.proteomics.IntensityMatrix;
 import de.tum.bio.proteomics.Peptide;
 import de.tum.bio.proteomics.PeptideId;
 import de.tum.bio.proteomics.headers.EvidenceTableHeaders;
 import de.tum.bio.proteomics.headers.TableHeaders;
+import de.tum.bio.utils.ColumnMapping;
+import de.tum.bio.utils.ColumnType;
+import de.tum.bio.utils.ColumnarTable;
+import de.tum.bio.utils.LineIndex;
+import de.tum.bio.utils.ProgressListener;
+import de.tum.bio.utils.ProgressReporter;
+import de.tum.bio.utils.ProgressSupport;
 import de.tum.bio.utils.SeparatedTextReader;
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyStringProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
 
 public class MQEvidenceMatcher extends MQTablesIO {
 	
-	private DoubleProperty progressProperty = new SimpleDoubleProperty();
-	private StringProperty statusProperty = new SimpleStringProperty();
+	// Distinguishes the cached sums from a cached table of the same columns
+	private static final String INTENSITIES_CACHE_NAME = "Intensities by peptide and experiment ";
+	
+	private ProgressSupport progressSupport = new ProgressSupport();
 	
 	public MQEvidenceMatcher() {
 		// empty
 	}
 
-	@SuppressWarnings("unchecked")
 	public <E extends Enum<E> & TableHeaders> void match(PeptideId peptideId, String txtDirectory, Map<E, String> headerMap) throws IOException {
-		Map<String, Peptide> peptides = peptideId.getAllPeptides();
-		
-		if (headerMap == null) {
-			headerMap = (Map<E, String>) initStandardHeaders();
+		match(peptideId, readIntensities(txtDirectory, headerMap));
+	}
+	
+	/**
+	 * Streams the evidence table once and sums up the intensities of its rows by peptide ID and experiment.
+	 * Rows are not kept, so memory depends on the number of peptides and experiments only. The peptides are not needed,
+	 * so this can run while the peptides are still being read. Chunks of the table are summed up in parallel and merged,
+	 * with the cache enabled the sums are stored next to the table and reused while it and the filters are unchanged.
+	 * @param txtDirectory
+	 * @param headerMap
+	 * @return summed intensities to be passed to match
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends Enum<E> & TableHeaders> EvidenceIntensities readIntensities(String txtDirectory, Map<E, String> headerMap) throws IOException {
+		Map<E, String> headers = (headerMap == null) ? (Map<E, String>) initStandardHeaders() : headerMap;
+		Map<String, ColumnType> columnTypes = new HashMap<>();
+		for (EvidenceTableHeaders header : new EvidenceTableHeaders[] {EvidenceTableHeaders.PEPTIDE_ID, EvidenceTableHeaders.EXPERIMENT, EvidenceTableHeaders.INTENSITY}) {
+			columnTypes.put(headers.get(header), EVIDENCE_COLUMN_TYPES.get(header));
 		}
-		List<Map<EvidenceTableHeaders, String>> evidenceList = read(txtDirectory, headerMap);
-		if (evidenceList != null) {
-			Map<String, List<Feature>> featureMap = new HashMap<>();
-			long index = 0;
-			long numberOfPeptides = peptides.size();
-			setStatusProperty("Reading feature information...");
-			for (Peptide peptide : peptides.values()) {
-				setProgressProperty((double) index/numberOfPeptides);
-				if (peptide.getEvidenceIds().length() > 0) {
-					String[] evidenceIds = peptide.getEvidenceIds().split(";");
-					List<Feature> featureList = new ArrayList<>();
-					for (String evidenceId : evidenceIds) {
-						featureList.add(new Feature(evidenceList.get(Integer.parseInt(evidenceId))));
-					}
-					Map<String, Long> experimentIntensities = new HashMap<>();
-					for (Feature feature : featureList) {
-						if (!featureMap.containsKey(feature.getExperiment())) {
-							featureMap.put(feature.getExperiment(), new ArrayList<Feature>());
-						}
-						if (!experimentIntensities.containsKey(feature.getExperiment())) {
-							experimentIntensities.put(feature.getExperiment(), feature.getIntensity());
-						} else {
-							long previousIntensity = experimentIntensities.get(feature.getExperiment());
-							experimentIntensities.put(feature.getExperiment(), previousIntensity + feature.getIntensity());
-						}
-						featureMap.get(feature.getExperiment()).add(feature);
-					}
-					peptide.setFeatureMap(featureMap);
-					peptide.setExperimentIntensities(experimentIntensities);
-				} else {
-					System.out.println("No evidences found for peptide sequence: " + peptide.getSequenceAsString());
-				}
-				index++;
+		Path path = Paths.get(txtDirectory + FileSystems.getDefault().getSeparator() + FILENAME_EVIDENCE);
+		SeparatedTextReader textReader = new SeparatedTextReader();
+		textReader.setCacheEnabled(isCacheEnabled());
+		textReader.addProgressListener(progressSupport);
+		try {
+			if (!isCacheEnabled()) {
+				return sumIntensities(textReader, path, columnTypes, headers);
 			}
-			setProgressProperty(0.0);
+			ColumnarTable table = textReader.readComputedTable(path, INTENSITIES_CACHE_NAME, columnTypes, "\t", getRowFilters(),
+					() -> sumIntensities(textReader, path, columnTypes, headers).toTable());
+			return EvidenceIntensities.fromTable(table, headers);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			textReader.removeProgressListener(progressSupport);
 		}
 	}
-
-	private <E extends Enum<E> & TableHeaders> List<Map<EvidenceTableHeaders, String>> read(String txtDirectory, Map<E, String> headerMap) throws IOException {
-		List<HashMap<String, String>> contentList = null;
+	
+	/**
+	 * Sums up the intensities of each chunk of the evidence table on its own and merges the chunks in file order.
+	 * @param textReader
+	 * @param path
+	 * @param columnTypes
+	 * @param headerMap
+	 * @return summed intensities
+	 * @throws IOException
+	 */
+	private EvidenceIntensities sumIntensities(SeparatedTextReader textReader, Path path, Map<String, ColumnType> columnTypes,
+			Map<? extends Enum<?>, String> headerMap) throws IOException {
+		List<EvidenceIntensities> chunks = new ArrayList<>();
+		textReader.readBatches(path, columnTypes, "\t", getRowFilters(), () -> {
+			EvidenceIntensities chunk = new EvidenceIntensities(headerMap);
+			chunks.add(chunk);
+			return chunk::add;
+		});
+		EvidenceIntensities evidenceIntensities = new EvidenceIntensities(headerMap);
+		for (EvidenceIntensities chunk : chunks) {
+			evidenceIntensities.addAll(chunk);
+		}
+		return evidenceIntensities;
+	}
+	
+	/**
+	 * Indexes the evidence lines by peptide ID without decoding them. Features are read on demand through the returned provider,
+	 * which is much faster and smaller than reading all evidences if only some protein groups are inspected.
+	 * @param txtDirectory
+	 * @param headerMap
+	 * @return provider of the features of the evidence table
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends Enum<E> & TableHeaders> MQLazyEvidence readIndex(String txtDirectory, Map<E, String> headerMap) throws IOException {
+		if (headerMap == null) {
+			headerMap = (Map<E, String>) initStandardHeaders();
+		}
 		Path path = Paths.get(txtDirectory + FileSystems.getDefault().getSeparator() + FILENAME_EVIDENCE);
 		SeparatedTextReader textReader = new SeparatedTextReader();
-		progressProperty.bind(textReader.getProgressProperty());
-		statusProperty.bind(textReader.getStatusProperty());
+		textReader.addProgressListener(progressSupport);
 		try {
-			contentList = textReader.readFile(path, headerMap, "\t");
-		} catch (IOException ioe) {
-			throw ioe;
+			LineIndex lineIndex = textReader.indexLines(path, headerMap.get(EvidenceTableHeaders.PEPTIDE_ID), "\t", getRowFilters());
+			return new MQLazyEvidence(path, lineIndex, headerMap);
+		} finally {
+			textReader.removeProgressListener(progressSupport);
+		}
+	}
+	
+	/**
+	 * Assigns the summed intensities by experiment to the peptides. Columns of the resulting matrix are the experiments
+	 * of the summary followed by experiments only found in the evidence table.
+	 * @param peptideId
+	 * @param evidenceIntensities
+	 * @return number of peptides without evidences, which is also reported as status
+	 */
+	public int match(PeptideId peptideId, EvidenceIntensities evidenceIntensities) {
+		List<String> experiments = peptideId.getExperimentNames();
+		int[] experimentColumns = getExperimentColumns(experiments, evidenceIntensities);
+		IntensityMatrix matrix = new IntensityMatrix(peptideId.getOrdinalCount(), experiments);
+		int unmatchedPeptides = addIntensities(matrix, peptideId.getAllPeptides().values(), experimentColumns, evidenceIntensities);
+		peptideId.setExperimentIntensities(matrix);
+		return unmatchedPeptides;
+	}
+	
+	/**
+	 * Sums the intensities of peptides into a new matrix without assigning it, e.g. for peptides prepared by
+	 * PeptideId.preparePeptides() that are not shown yet. Rows are the ordinals of the peptides.
+	 * @param peptides
+	 * @param rowCount number of ordinals
+	 * @param experimentNames experiments of the summary, followed by experiments only found in the evidence table
+	 * @param evidenceIntensities
+	 * @return matrix to be assigned with PeptideId.setExperimentIntensities()
+	 */
+	public IntensityMatrix createMatrix(Collection<Peptide> peptides, int rowCount, List<String> experimentNames, EvidenceIntensities evidenceIntensities) {
+		List<String> experiments = new ArrayList<>(experimentNames);
+		int[] experimentColumns = getExperimentColumns(experiments, evidenceIntensities);
+		IntensityMatrix matrix = new IntensityMatrix(rowCount, experiments);
+		addIntensities(matrix, peptides, experimentColumns, evidenceIntensities);
+		return matrix;
+	}
+	
+	/**
+	 * @param experiments columns of the matrix, experiments only found in the evidence table are appended
+	 * @param evidenceIntensities
+	 * @return column of each experiment of the evidence table
+	 */
+	private static int[] getExperimentColumns(List<String> experiments, EvidenceIntensities evidenceIntensities) {
+		int[] experimentColumns = new int[evidenceIntensities.experiments.size()];
+		for (int experiment = 0; experiment < experimentColumns.length; experiment++) {
+			String experimentName = evidenceIntensities.experiments.get(experiment);
+			experimentColumns[experiment] = experiments.indexOf(experimentName);
+			if (experimentColumns[experiment] < 0) {
+				experimentColumns[experiment] = experiments.size();
+				experiments.add(experimentName);
+			}
+		}
+		return experimentColumns;
+	}
+	
+	/**
+	 * @param matrix
+	 * @param peptides
+	 * @param experimentColumns
+	 * @param evidenceIntensities
+	 * @return number of peptides without evidences, which is also reported as status
+	 */
+	private int addIntensities(IntensityMatrix matrix, Collection<Peptide> peptides, int[] experimentColumns, EvidenceIntensities evidenceIntensities) {
+		long index = 0;
+		int unmatchedPeptides = 0;
+		ProgressReporter progressReporter = ProgressReporter.forItems(this::setProgressProperty, peptides.size());
+		setStatusProperty("Reading feature information...");
+		for (Peptide peptide : peptides) {
+			progressReporter.update(index);
+			if (peptide.getEvidenceIds().length() > 0) {
+				int id = Integer.parseInt(peptide.getId());
+				long[] intensities = evidenceIntensities.getIntensities(id);
+				if (intensities != null) {
+					boolean[] found = evidenceIntensities.getFound(id);
+					for (int experiment = 0; experiment < intensities.length; experiment++) {
+						if (found[experiment]) {
+							matrix.add(peptide.getOrdinal(), experimentColumns[experiment], intensities[experiment]);
+						}
+					}
+				}
+			} else {
+				unmatchedPeptides++;
+			}
+			index++;
 		}
-		progressProperty.unbind();
-		statusProperty.unbind();
-		List<Map<EvidenceTableHeaders, String>> evidenceList = new ArrayList<>();
-		for (Map<String, String> properties : contentList) {
-			Map<EvidenceTableHeaders, String> standardizedProperties = standardizeProperties(properties);
-			evidenceList.add(Integer.parseInt(standardizedProperties.get(EvidenceTableHeaders.ID)), standardizedProperties);
+		setProgressProperty(0.0);
+		if (unmatchedPeptides > 0) {
+			setStatusProperty("No evidences found for " + unmatchedPeptides + " peptides.");
 		}
-		return evidenceList;
+		return unmatchedPeptides;
 	}
 	
-	private Map<EvidenceTableHeaders, String> standardizeProperties(Map<String, String> properties) {
-		Map<EvidenceTableHeaders, String> standardizedContentList = new HashMap<EvidenceTableHeaders, String>();
-		for (Entry<String, String> entry : properties.entrySet()) {
-			if (EvidenceHeadersMap.containsValue(entry.getKey())) {
-				standardizedContentList.put(EvidenceHeadersMap.inverse().get(entry.getKey()), (String) entry.getValue());
+	/**
+	 * Intensities of an evidence table summed up by peptide ID and experiment.
+	 * Experiments are indexed in order of their first appearance in the table.
+	 */
+	public static final class EvidenceIntensities {
+		
+		private final Map<? extends Enum<?>, String> headerMap;
+		// Resolved with the first batch, all batches share the header line of the file
+		private ColumnMapping<EvidenceTableHeaders> columns;
+		private List<String> experiments = new ArrayList<>();
+		// Rows by peptide ID, null for peptides without evidence
+		private long[][] intensities = new long[0][];
+		private boolean[][] found = new boolean[0][];
+		
+		private EvidenceIntensities(Map<? extends Enum<?>, String> headerMap) {
+			this.headerMap = headerMap;
+		}
+		
+		/**
+		 * Restores intensities stored by toTable().
+		 * @param table
+		 * @param headerMap
+		 * @return intensities
+		 */
+		private static EvidenceIntensities fromTable(ColumnarTable table, Map<? extends Enum<?>, String> headerMap) {
+			EvidenceIntensities evidenceIntensities = new EvidenceIntensities(headerMap);
+			evidenceIntensities.add(table);
+			return evidenceIntensities;
+		}
+		
+		/**
+		 * Stores the sums as evidence table with one row per peptide and experiment, preceded by a row without peptide
+		 * for each experiment so that the experiments keep their order.
+		 * @return table with the peptide ID, experiment and intensity columns
+		 */
+		private ColumnarTable toTable() {
+			ColumnarTable table = new ColumnarTable(
+					Arrays.asList(headerMap.get(EvidenceTableHeaders.PEPTIDE_ID), headerMap.get(EvidenceTableHeaders.EXPERIMENT), headerMap.get(EvidenceTableHeaders.INTENSITY)),
+					Arrays.asList(ColumnType.INT, ColumnType.CATEGORY, ColumnType.LONG));
+			for (String experiment : experiments) {
+				table.appendRow("", experiment, "");
 			}
+			for (int peptideId = 0; peptideId < intensities.length; peptideId++) {
+				if (intensities[peptideId] == null) {
+					continue;
+				}
+				for (int experiment = 0; experiment < intensities[peptideId].length; experiment++) {
+					if (found[peptideId][experiment]) {
+						table.appendRow(Integer.toString(peptideId), experiments.get(experiment), Long.toString(intensities[peptideId][experiment]));
+					}
+				}
+			}
+			return table;
+		}
+		
+		private void add(ColumnarTable batch) {
+			int peptideIdColumn;
+			int experimentColumn;
+			int intensityColumn;
+			if (columns == null) {
+				columns = ColumnMapping.compile(batch, EvidenceTableHeaders.class, headerMap);
+			}
+			try {
+				peptideIdColumn = columns.getRequiredColumn(EvidenceTableHeaders.PEPTIDE_ID);
+				experimentColumn = columns.getRequiredColumn(EvidenceTableHeaders.EXPERIMENT);
+				intensityColumn = columns.getRequiredColumn(EvidenceTableHeaders.INTENSITY);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			List<String> categories = batch.getCategories(experimentColumn);
+			for (int row = 0; row < batch.getRowCount(); row++) {
+				if (batch.isEmpty(peptideIdColumn, row)) {
+					continue;
+				}
+				int peptideId = batch.getInt(peptideIdColumn, row);
+				int experiment = batch.getCode(experimentColumn, row);
+				if (peptideId >= intensities.length) {
+					int length = Math.max(peptideId + 1, intensities.length + (intensities.length >> 1));
+					intensities = Arrays.copyOf(intensities, length);
+					found = Arrays.copyOf(found, length);
+				}
+				if (intensities[peptideId] == null || experiment >= intensities[peptideId].length) {
+					intensities[peptideId] = (intensities[peptideId] == null) ? new long[categories.size()] : Arrays.copyOf(intensities[peptideId], categories.size());
+					found[peptideId] = (found[peptideId] == null) ? new boolean[categories.size()] : Arrays.copyOf(found[peptideId], categories.size());
+				}
+				intensities[peptideId][experiment] += batch.getLong(intensityColumn, row);
+				found[peptideId][experiment] = true;
+			}
+			// The batch table is reused, keep a copy of its dictionary
+			experiments = new ArrayList<>(categories);
+		}
+		
+		/**
+		 * Adds the sums of another chunk of the same table. Experiments of the chunk that are new are appended.
+		 * @param other
+		 */
+		private void addAll(EvidenceIntensities other) {
+			int[] experimentIndices = new int[other.experiments.size()];
+			for (int experiment = 0; experiment < experimentIndices.length; experiment++) {
+				String experimentName = other.experiments.get(experiment);
+				experimentIndices[experiment] = experiments.indexOf(experimentName);
+				if (experimentIndices[experiment] < 0) {
+					experimentIndices[experiment] = experiments.size();
+					experiments.add(experimentName);
+				}
+			}
+			if (other.intensities.length > intensities.length) {
+				intensities = Arrays.copyOf(intensities, other.intensities.length);
+				found = Arrays.copyOf(found, other.intensities.length);
+			}
+			for (int peptideId = 0; peptideId < other.intensities.length; peptideId++) {
+				long[] otherIntensities = other.intensities[peptideId];
+				if (otherIntensities == null) {
+					continue;
+				}
+				if (intensities[peptideId] == null || intensities[peptideId].length < experiments.size()) {
+					intensities[peptideId] = (intensities[peptideId] == null) ? new long[experiments.size()] : Arrays.copyOf(intensities[peptideId], experiments.size());
+					found[peptideId] = (found[peptideId] == null) ? new boolean[experiments.size()] : Arrays.copyOf(found[peptideId], experiments.size());
+				}
+				for (int experiment = 0; experiment < otherIntensities.length; experiment++) {
+					if (other.found[peptideId][experiment]) {
+						intensities[peptideId][experimentIndices[experiment]] += otherIntensities[experiment];
+						found[peptideId][experimentIndices[experiment]] = true;
+					}
+				}
+			}
+		}
+		
+		private long[] getIntensities(int peptideId) {
+			return (peptideId < intensities.length) ? intensities[peptideId] : null;
+		}
+		
+		private boolean[] getFound(int peptideId) {
+			return found[peptideId];
 		}
-		return standardizedContentList;
 	}
 	
 	private Map<EvidenceTableHeaders, String> initStandardHeaders() {
 		return EVIDENCE_HEADERS_UNI;
 	}
 	
-	public ReadOnlyDoubleProperty getProgressProperty() {
-		return progressProperty;
+	public void addProgressListener(ProgressListener listener) {
+		progressSupport.addListener(listener);
 	}
 	
-	private void setProgressProperty(double value) {
-		progressProperty.set(value);
+	public void removeProgressListener(ProgressListener listener) {
+		progressSupport.removeListener(listener);
 	}
 	
-	public ReadOnlyStringProperty getStatusProperty() {
-		return statusProperty;
+	private void setProgressProperty(double value) {
+		progressSupport.progressChanged(value);
 	}
 	
 	private void setStatusProperty(String status) {
-		statusProperty.set(status);
+		progressSupport.statusChanged(status);
 	}
 	
 }
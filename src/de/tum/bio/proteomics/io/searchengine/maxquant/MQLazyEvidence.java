@@ -0,0 +1,148 @@
+package de.tum.bio.proteomics.io.searchengine.maxquant;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.tum.bio.proteomics.Feature;
+import de.tum.bio.proteomics.FeatureProvider;
+import de.tum.bio.proteomics.Peptide;
+import de.tum.bio.proteomics.headers.EvidenceTableHeaders;
+import de.tum.bio.utils.ColumnMapping;
+import de.tum.bio.utils.ColumnType;
+import de.tum.bio.utils.ColumnarTable;
+import de.tum.bio.utils.LineIndex;
+import de.tum.bio.utils.SeparatedTextReader;
+
+/**
+ * Features of an evidence table that are decoded on demand.
+ * Only the offsets of the evidence lines are kept by peptide ID. The lines of requested peptides are read
+ * when they are first needed, and the decoded features of recently used peptides are cached.
+ *
+ */
+
+public class MQLazyEvidence implements FeatureProvider {
+
+	private static final int MAX_CACHED_FEATURES = 200000;
+	private static final int MAX_CACHED_PEPTIDES = 50000;
+	private static final EvidenceTableHeaders[] FEATURE_HEADERS = {EvidenceTableHeaders.ID, EvidenceTableHeaders.INTENSITY, EvidenceTableHeaders.EXPERIMENT,
+			EvidenceTableHeaders.NUMBER_OF_DATA_POINTS, EvidenceTableHeaders.PEPTIDE_ID, EvidenceTableHeaders.MOD_PEPTIDE_ID};
+
+	private final Path path;
+	private final LineIndex lineIndex;
+	private final Map<String, ColumnType> columnTypes = new HashMap<>();
+	private final Map<EvidenceTableHeaders, String> headers = new HashMap<>();
+	// Resolved with the first decoded lines, all reads share the header line of the file
+	private ColumnMapping<EvidenceTableHeaders> columns;
+	// Features by peptide ID in order of last access
+	private final LinkedHashMap<String, List<Feature>> cache = new LinkedHashMap<>(16, 0.75f, true);
+	private int cachedFeatures = 0;
+
+	MQLazyEvidence(Path path, LineIndex lineIndex, Map<?, String> headerMap) {
+		this.path = path;
+		this.lineIndex = lineIndex;
+		for (EvidenceTableHeaders header : FEATURE_HEADERS) {
+			headers.put(header, headerMap.get(header));
+			columnTypes.put(headerMap.get(header), MQTablesIO.EVIDENCE_COLUMN_TYPES.get(header));
+		}
+	}
+
+	@Override
+	public synchronized Map<String, List<Feature>> getFeatures(Collection<Peptide> peptides) throws IOException {
+		Map<String, List<Feature>> result = new HashMap<>();
+		List<String> missingIds = new ArrayList<>();
+		for (Peptide peptide : peptides) {
+			if (peptide.getId() == null) {
+				continue;
+			}
+			List<Feature> features = cache.get(peptide.getId());
+			if (features == null) {
+				missingIds.add(peptide.getId());
+			} else if (!features.isEmpty()) {
+				result.put(peptide.getId(), features);
+			}
+		}
+		if (!missingIds.isEmpty()) {
+			Map<String, List<Feature>> decoded = decode(missingIds);
+			for (String peptideId : missingIds) {
+				List<Feature> features = decoded.get(peptideId);
+				if (features == null) {
+					// Remember peptides without features as well, they need not be looked up again
+					features = new ArrayList<>();
+				} else {
+					result.put(peptideId, features);
+				}
+				cache.put(peptideId, features);
+				cachedFeatures += features.size();
+			}
+			evict();
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the evidence lines of some peptides.
+	 * @param peptideIds
+	 * @return features by peptide ID
+	 * @throws IOException
+	 */
+	private Map<String, List<Feature>> decode(List<String> peptideIds) throws IOException {
+		int[] keys = new int[peptideIds.size()];
+		int lineCount = 0;
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = Integer.parseInt(peptideIds.get(i));
+			lineCount += lineIndex.getLineCount(keys[i]);
+		}
+		long[] offsets = new long[lineCount];
+		int position = 0;
+		for (int key : keys) {
+			position = lineIndex.copyOffsets(key, offsets, position);
+		}
+		Map<String, List<Feature>> features = new HashMap<>();
+		if (offsets.length == 0) {
+			return features;
+		}
+		ColumnarTable evidenceTable = new SeparatedTextReader().readTableAt(path, columnTypes, "\t", offsets);
+		if (columns == null) {
+			columns = ColumnMapping.compile(evidenceTable, EvidenceTableHeaders.class, headers);
+		}
+		int idColumn = columns.getRequiredColumn(EvidenceTableHeaders.ID);
+		int intensityColumn = columns.getRequiredColumn(EvidenceTableHeaders.INTENSITY);
+		int experimentColumn = columns.getRequiredColumn(EvidenceTableHeaders.EXPERIMENT);
+		int numberOfDataPointsColumn = columns.getRequiredColumn(EvidenceTableHeaders.NUMBER_OF_DATA_POINTS);
+		int peptideIdColumn = columns.getRequiredColumn(EvidenceTableHeaders.PEPTIDE_ID);
+		int modPeptideIdColumn = columns.getRequiredColumn(EvidenceTableHeaders.MOD_PEPTIDE_ID);
+		for (int row = 0; row < evidenceTable.getRowCount(); row++) {
+			String peptideId = String.valueOf(evidenceTable.getInt(peptideIdColumn, row));
+			if (!features.containsKey(peptideId)) {
+				features.put(peptideId, new ArrayList<Feature>());
+			}
+			features.get(peptideId).add(new Feature(evidenceTable.getString(idColumn, row), evidenceTable.getLong(intensityColumn, row),
+					evidenceTable.getString(experimentColumn, row), evidenceTable.getInt(numberOfDataPointsColumn, row),
+					evidenceTable.getInt(peptideIdColumn, row), evidenceTable.getInt(modPeptideIdColumn, row)));
+		}
+		return features;
+	}
+
+	/**
+	 * Drops the least recently used peptides until the cached features fit into MAX_CACHED_FEATURES and the peptides
+	 * into MAX_CACHED_PEPTIDES, which bounds the peptides without features as well. The most recent peptide is always kept.
+	 */
+	private void evict() {
+		Iterator<List<Feature>> iterator = cache.values().iterator();
+		while ((cachedFeatures > MAX_CACHED_FEATURES || cache.size() > MAX_CACHED_PEPTIDES) && cache.size() > 1) {
+			cachedFeatures -= iterator.next().size();
+			iterator.remove();
+		}
+	}
+
+	public int getIndexedLineCount() {
+		return lineIndex.getLineCount();
+	}
+}
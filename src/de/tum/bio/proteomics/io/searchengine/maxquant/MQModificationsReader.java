@@ -6,25 +6,21 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 
 import de.tum.bio.proteomics.Modification;
 import de.tum.bio.proteomics.analysis.AnalysisComponent;
 import de.tum.bio.proteomics.headers.ModificationsTableHeaders;
 import de.tum.bio.proteomics.headers.TableHeaders;
+import de.tum.bio.utils.ColumnMapping;
+import de.tum.bio.utils.ColumnarTable;
+import de.tum.bio.utils.ProgressListener;
+import de.tum.bio.utils.ProgressReporter;
+import de.tum.bio.utils.ProgressSupport;
 import de.tum.bio.utils.SeparatedTextReader;
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyStringProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
 
 /**
  * Reader for MaxQuant modifications files.
@@ -34,13 +30,10 @@ import javafx.beans.property.StringProperty;
 
 public class MQModificationsReader extends MQTablesIO implements MQReader {
 	
-	private DoubleProperty progressProperty = new SimpleDoubleProperty();
-	private StringProperty statusProperty = new SimpleStringProperty();
+	private ProgressSupport progressSupport = new ProgressSupport();
 	
 	private String modification;
 	
-	private BiMap<ModificationsTableHeaders, String> tmpBiMap;
-	
 	public MQModificationsReader(String modification) {
 		this.modification = modification;
 	}
@@ -52,7 +45,7 @@ public class MQModificationsReader extends MQTablesIO implements MQReader {
 	@SuppressWarnings("unchecked")
 	@Override
 	public <E extends Enum<E> & TableHeaders> List<AnalysisComponent> read(String txtDirectory, Map<E, String> headerMap) throws IOException {
-		List<HashMap<String, String>> contentList = null;
+		ColumnarTable table = null;
 		List<AnalysisComponent> modificationsList = null;
 		if (headerMap == null) {
 			headerMap = new HashMap<>((HashMap<E, String>) getStandardHeaders());
@@ -60,18 +53,15 @@ public class MQModificationsReader extends MQTablesIO implements MQReader {
 		
 		// Update sequence window column name
 		headerMap.replace((E) ModificationsTableHeaders.SEQUENCE_WINDOW, modification + " " + getStandardHeaders().get(ModificationsTableHeaders.SEQUENCE_WINDOW));
-		tmpBiMap = HashBiMap.create(getStandardHeaders());
-		tmpBiMap.replace(ModificationsTableHeaders.SEQUENCE_WINDOW, modification + " " + getStandardHeaders().get(ModificationsTableHeaders.SEQUENCE_WINDOW));
 		
 		try {
 			Path path = getPath(txtDirectory, modification);
 			SeparatedTextReader textReader = new SeparatedTextReader();
-			progressProperty.bind(textReader.getProgressProperty());
-			statusProperty.bind(textReader.getStatusProperty());
-			contentList = textReader.readFile(path, headerMap, "\t");
-			progressProperty.unbind();
-			statusProperty.unbind();
-			modificationsList = createListOfModifications(contentList);
+			textReader.setCacheEnabled(isCacheEnabled());
+			textReader.addProgressListener(progressSupport);
+			table = textReader.readTable(path, SeparatedTextReader.resolveColumnTypes(headerMap, MODIFICATIONS_COLUMN_TYPES), "\t", getRowFilters());
+			textReader.removeProgressListener(progressSupport);
+			modificationsList = createListOfModifications(table, headerMap);
 		} catch (IOException e) {
 			throw e;
 		}
@@ -85,49 +75,65 @@ public class MQModificationsReader extends MQTablesIO implements MQReader {
 		return path;
 	}
 
-	private List<AnalysisComponent> createListOfModifications(List<HashMap<String, String>> contentList) {
-		List<AnalysisComponent> modificationsList = new ArrayList<>();
-		// Go through each protein hashmap and create new object
-		long numberOfEntries = contentList.size();
-		long index = 1;
-		setStatusProperty("Parse modifications...");
-		for (Map<String, String> properties : contentList) {
-			setProgressProperty((double) index/numberOfEntries);
-			Map<ModificationsTableHeaders, String> standardizedProperties = standardizeProperties(properties);
-			modificationsList.add(Integer.parseInt(standardizedProperties.get(ModificationsTableHeaders.ID)), new Modification(modification, standardizedProperties));
-			index++;
+	/**
+	 * Creates list of new Modifications.
+	 * @param table
+	 * @param headerMap
+	 * @return list of Modifications
+	 * @throws IOException
+	 */
+	private <E extends Enum<E> & TableHeaders> List<AnalysisComponent> createListOfModifications(ColumnarTable table, Map<E, String> headerMap) throws IOException {
+		List<AnalysisComponent> modificationsList = new ArrayList<>(table.getRowCount());
+		ColumnMapping<ModificationsTableHeaders> columns = ColumnMapping.compile(table, ModificationsTableHeaders.class, headerMap);
+		int idColumn = columns.getRequiredColumn(ModificationsTableHeaders.ID);
+		int localizationProbabilityColumn = columns.getRequiredColumn(ModificationsTableHeaders.LOCALIZATION_PROBABILITY);
+		int scoreDiffColumn = columns.getRequiredColumn(ModificationsTableHeaders.SCORE_DIFF);
+		int pepColumn = columns.getRequiredColumn(ModificationsTableHeaders.PEP);
+		int deltaScoreColumn = columns.getRequiredColumn(ModificationsTableHeaders.DELTA_SCORE);
+		int scoreForLocalizationColumn = columns.getRequiredColumn(ModificationsTableHeaders.SCORE_FOR_LOCALIZATION);
+		int positionInPeptideColumn = columns.getRequiredColumn(ModificationsTableHeaders.POSITION_IN_PEPTIDE);
+		int peptideIdsColumn = columns.getRequiredColumn(ModificationsTableHeaders.PEPTIDE_IDS);
+		int sequenceWindowColumn = columns.getRequiredColumn(ModificationsTableHeaders.SEQUENCE_WINDOW);
+		// Go through each row and create new Modification object
+		ProgressReporter progressReporter = ProgressReporter.forItems(this::setProgressProperty, table.getRowCount());
+		setStatusProperty("Parse " + modification + " sites...");
+		for (int row = 0; row < table.getRowCount(); row++) {
+			progressReporter.update(row);
+			int id = table.getInt(idColumn, row);
+			Modification site = new Modification(String.valueOf(id), modification,
+					table.getDouble(localizationProbabilityColumn, row),
+					table.getDouble(scoreDiffColumn, row),
+					table.getDouble(pepColumn, row),
+					table.getDouble(deltaScoreColumn, row),
+					table.getDouble(scoreForLocalizationColumn, row),
+					table.getInt(positionInPeptideColumn, row),
+					Arrays.asList(table.getString(peptideIdsColumn, row).split(";")),
+					table.getString(sequenceWindowColumn, row));
+			modificationsList.add(site);
 		}
 		return modificationsList;
 	}
 	
-	private Map<ModificationsTableHeaders, String> standardizeProperties(Map<String, String> properties) {
-		Map<ModificationsTableHeaders, String> standardizedContentList = new HashMap<ModificationsTableHeaders, String>();
-		for (Entry<String, String> entry : properties.entrySet()) {
-			standardizedContentList.put(tmpBiMap.inverse().get(entry.getKey()), entry.getValue());
-		}
-		return standardizedContentList;
-	}
-	
 	private Map<ModificationsTableHeaders, String> getStandardHeaders() {
 		return MODIFICATIONS_HEADERS_UNI;
 	}
 	
 	@Override
-	public ReadOnlyDoubleProperty getProgressProperty() {
-		return progressProperty;
+	public void addProgressListener(ProgressListener listener) {
+		progressSupport.addListener(listener);
 	}
 	
-	private void setProgressProperty(double value) {
-		progressProperty.set(value);
+	@Override
+	public void removeProgressListener(ProgressListener listener) {
+		progressSupport.removeListener(listener);
 	}
 	
-	@Override
-	public ReadOnlyStringProperty getStatusProperty() {
-		return statusProperty;
+	private void setProgressProperty(double value) {
+		progressSupport.progressChanged(value);
 	}
 	
 	private void setStatusProperty(String status) {
-		statusProperty.set(status);
+		progressSupport.statusChanged(status);
 	}
 	
 	public String getModificationName() {
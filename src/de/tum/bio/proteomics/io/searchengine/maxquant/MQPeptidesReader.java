@@ -6,22 +6,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import de.tum.bio.proteomics.Peptide;
 import de.tum.bio.proteomics.analysis.AnalysisComponent;
 import de.tum.bio.proteomics.headers.PeptidesTableHeaders;
 import de.tum.bio.proteomics.headers.TableHeaders;
+import de.tum.bio.utils.ColumnMapping;
+import de.tum.bio.utils.ColumnarTable;
+import de.tum.bio.utils.ProgressListener;
+import de.tum.bio.utils.ProgressReporter;
+import de.tum.bio.utils.ProgressSupport;
 import de.tum.bio.utils.SeparatedTextReader;
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyStringProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
 
 /**
  * Reader for MaxQuant proteinGroups files.
@@ -31,8 +28,7 @@ import javafx.beans.property.StringProperty;
 
 public class MQPeptidesReader extends MQTablesIO implements MQReader {
 	
-	private DoubleProperty progressProperty = new SimpleDoubleProperty();
-	private StringProperty statusProperty = new SimpleStringProperty();
+	private ProgressSupport progressSupport = new ProgressSupport();
 	
 	public MQPeptidesReader() {
 		// empty
@@ -52,7 +48,7 @@ public class MQPeptidesReader extends MQTablesIO implements MQReader {
 	@SuppressWarnings("unchecked")
 	@Override
 	public <E extends Enum<E> & TableHeaders> List<AnalysisComponent> read(String txtDirectory, Map<E, String> headerMap) throws IOException {
-		List<HashMap<String, String>> contentList = null;
+		ColumnarTable table = null;
 		List<AnalysisComponent> peptidesList = null;
 		if (headerMap == null) {
 			headerMap = (Map<E, String>) initStandardHeaders();
@@ -60,12 +56,11 @@ public class MQPeptidesReader extends MQTablesIO implements MQReader {
 		try {
 			Path path = getPath(txtDirectory, "");
 			SeparatedTextReader textReader = new SeparatedTextReader();
-			progressProperty.bind(textReader.getProgressProperty());
-			statusProperty.bind(textReader.getStatusProperty());
-			contentList = textReader.readFile(path, headerMap, "\t");
-			progressProperty.unbind();
-			statusProperty.unbind();
-			peptidesList = createListOfPeptides(contentList);
+			textReader.setCacheEnabled(isCacheEnabled());
+			textReader.addProgressListener(progressSupport);
+			table = textReader.readTable(path, SeparatedTextReader.resolveColumnTypes(headerMap, PEPTIDES_COLUMN_TYPES), "\t", getRowFilters());
+			textReader.removeProgressListener(progressSupport);
+			peptidesList = createListOfPeptides(table, headerMap);
 		} catch (IOException e) {
 			throw e;
 		}
@@ -80,37 +75,47 @@ public class MQPeptidesReader extends MQTablesIO implements MQReader {
 
 	/**
 	 * Creates list of new Peptides.
-	 * @param contentList
+	 * @param table
+	 * @param headerMap
 	 * @return list of Peptides
+	 * @throws IOException
 	 */
-	private List<AnalysisComponent> createListOfPeptides(List<HashMap<String, String>> contentList) {
-		List<AnalysisComponent> peptideList = new ArrayList<>();
-		// Go through each protein hashmap and create new ProteinGroup object
-		long numberOfEntries = contentList.size();
-		long index = 1;
+	private <E extends Enum<E> & TableHeaders> List<AnalysisComponent> createListOfPeptides(ColumnarTable table, Map<E, String> headerMap) throws IOException {
+		List<AnalysisComponent> peptideList = new ArrayList<>(table.getRowCount());
+		ColumnMapping<PeptidesTableHeaders> columns = ColumnMapping.compile(table, PeptidesTableHeaders.class, headerMap);
+		int idColumn = columns.getRequiredColumn(PeptidesTableHeaders.ID);
+		int sequenceColumn = columns.getRequiredColumn(PeptidesTableHeaders.SEQUENCE);
+		int startPositionColumn = columns.getRequiredColumn(PeptidesTableHeaders.START_POSITION);
+		int endPositionColumn = columns.getRequiredColumn(PeptidesTableHeaders.END_POSITION);
+		int msmsCountColumn = columns.getRequiredColumn(PeptidesTableHeaders.MSMSCOUNTS);
+		int msmsIdsColumn = columns.getRequiredColumn(PeptidesTableHeaders.MSMSIDS);
+		int scoreColumn = columns.getRequiredColumn(PeptidesTableHeaders.SCORE);
+		int proteinGroupsIdsColumn = columns.getRequiredColumn(PeptidesTableHeaders.PROTEINGROUPS_IDS);
+		int evidenceIdsColumn = columns.getRequiredColumn(PeptidesTableHeaders.EVIDENCE_IDS);
+		int intensityColumn = columns.getRequiredColumn(PeptidesTableHeaders.INTENSITY);
+		// Go through each row and create new Peptide object
+		ProgressReporter progressReporter = ProgressReporter.forItems(this::setProgressProperty, table.getRowCount());
 		setStatusProperty("Parse peptides...");
-		for (Map<String, String> properties : contentList) {
-			setProgressProperty((double) index/numberOfEntries);
-			Map<PeptidesTableHeaders, String> standardizedProperties = standardizeProperties(properties);
-			peptideList.add(Integer.parseInt(standardizedProperties.get(PeptidesTableHeaders.ID)), new Peptide(standardizedProperties));
-			index++;
+		for (int row = 0; row < table.getRowCount(); row++) {
+			progressReporter.update(row);
+			int id = table.getInt(idColumn, row);
+			Peptide peptide = new Peptide(String.valueOf(id), intern(table.getString(sequenceColumn, row)), table.getInt(startPositionColumn, row), table.getInt(endPositionColumn, row), table.getInt(msmsCountColumn, row));
+			if (!table.isEmpty(msmsIdsColumn, row)) {
+				peptide.setMsmsIds(table.getString(msmsIdsColumn, row));
+			}
+			if (!table.isEmpty(scoreColumn, row)) {
+				peptide.setScore(table.getDouble(scoreColumn, row));
+			}
+			peptide.setProteinGroupsIds(table.getString(proteinGroupsIdsColumn, row));
+			peptide.setEvidenceIds(table.getString(evidenceIdsColumn, row));
+			if (!table.isEmpty(intensityColumn, row)) {
+				peptide.setTotalIntensity(table.getLong(intensityColumn, row));
+			}
+			peptideList.add(peptide);
 		}
 		return peptideList;
 	}
 	
-	/**
-	 * Standardizes the MaxQuant table headers to general enum headers.
-	 * @param properties
-	 * @return standardized properties
-	 */
-	private Map<PeptidesTableHeaders, String> standardizeProperties(Map<String, String> properties) {
-		Map<PeptidesTableHeaders, String> standardizedContentList = new HashMap<PeptidesTableHeaders, String>();
-		for (Entry<String, String> entry : properties.entrySet()) {
-			standardizedContentList.put(PeptidesHeadersMap.inverse().get(entry.getKey()), (String) entry.getValue());
-		}
-		return standardizedContentList;
-	}
-	
 	/**
 	 * Gets standard table headers.
 	 * @return map of standard table headers
@@ -120,20 +125,20 @@ public class MQPeptidesReader extends MQTablesIO implements MQReader {
 	}
 	
 	@Override
-	public ReadOnlyDoubleProperty getProgressProperty() {
-		return progressProperty;
+	public void addProgressListener(ProgressListener listener) {
+		progressSupport.addListener(listener);
 	}
 	
-	private void setProgressProperty(double value) {
-		progressProperty.set(value);
+	@Override
+	public void removeProgressListener(ProgressListener listener) {
+		progressSupport.removeListener(listener);
 	}
 	
-	@Override
-	public ReadOnlyStringProperty getStatusProperty() {
-		return statusProperty;
+	private void setProgressProperty(double value) {
+		progressSupport.progressChanged(value);
 	}
 	
 	private void setStatusProperty(String status) {
-		statusProperty.set(status);
+		progressSupport.statusChanged(status);
 	}
 }
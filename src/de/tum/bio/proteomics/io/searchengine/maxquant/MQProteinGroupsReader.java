@@ -6,22 +6,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import de.tum.bio.proteomics.ProteinGroup;
 import de.tum.bio.proteomics.analysis.AnalysisComponent;
 import de.tum.bio.proteomics.headers.ProteinGroupsTableHeaders;
 import de.tum.bio.proteomics.headers.TableHeaders;
+import de.tum.bio.utils.ColumnMapping;
+import de.tum.bio.utils.ColumnarTable;
+import de.tum.bio.utils.ProgressListener;
+import de.tum.bio.utils.ProgressReporter;
+import de.tum.bio.utils.ProgressSupport;
 import de.tum.bio.utils.SeparatedTextReader;
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyStringProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
 
 /**
  * Reader for MaxQuant proteinGroups files.
@@ -31,8 +28,7 @@ import javafx.beans.property.StringProperty;
 
 public class MQProteinGroupsReader extends MQTablesIO implements MQReader {
 	
-	private DoubleProperty progressProperty = new SimpleDoubleProperty();
-	private StringProperty statusProperty = new SimpleStringProperty();
+	private ProgressSupport progressSupport = new ProgressSupport();
 	
 	public MQProteinGroupsReader() {
 		// empty
@@ -53,8 +49,7 @@ public class MQProteinGroupsReader extends MQTablesIO implements MQReader {
 	@SuppressWarnings("unchecked")
 	@Override
 	public <E extends Enum<E> & TableHeaders> List<AnalysisComponent> read(String txtDirectory, Map<E, String> headerMap) throws IOException {
-		initBiMaps();
-		List<HashMap<String, String>> contentList = null;
+		ColumnarTable table = null;
 		List<AnalysisComponent> proteinGroupsList = null;
 		if (headerMap == null) {
 			headerMap = (Map<E, String>) initStandardHeaders();
@@ -62,12 +57,11 @@ public class MQProteinGroupsReader extends MQTablesIO implements MQReader {
 		try {
 			Path path = getPath(txtDirectory, "");
 			SeparatedTextReader textReader = new SeparatedTextReader();
-			progressProperty.bind(textReader.getProgressProperty());
-			statusProperty.bind(textReader.getStatusProperty());
-			contentList = textReader.readFile(path, headerMap, "\t");
-			progressProperty.unbind();
-			statusProperty.unbind();
-			proteinGroupsList = createListOfProteinGroups(contentList);
+			textReader.setCacheEnabled(isCacheEnabled());
+			textReader.addProgressListener(progressSupport);
+			table = textReader.readTable(path, SeparatedTextReader.resolveColumnTypes(headerMap, PROTEINGROUPS_COLUMN_TYPES), "\t", getRowFilters());
+			textReader.removeProgressListener(progressSupport);
+			proteinGroupsList = createListOfProteinGroups(table, headerMap);
 		} catch (IOException ioe) {
 			System.out.println(ioe);
 			throw ioe;
@@ -83,39 +77,35 @@ public class MQProteinGroupsReader extends MQTablesIO implements MQReader {
 
 	/**
 	 * Creates list of new ProteinGroups.
-	 * @param contentList
+	 * @param table
+	 * @param headerMap
 	 * @return list of ProteinGroups
+	 * @throws IOException
 	 */
-	private List<AnalysisComponent> createListOfProteinGroups(List<HashMap<String, String>> contentList) {
-		List<AnalysisComponent> proteinList = new ArrayList<>();
-		// Go through each protein hashmap and create new ProteinGroup object
-		long numberOfEntries = contentList.size();
-		long index = 1;
+	private <E extends Enum<E> & TableHeaders> List<AnalysisComponent> createListOfProteinGroups(ColumnarTable table, Map<E, String> headerMap) throws IOException {
+		List<AnalysisComponent> proteinList = new ArrayList<>(table.getRowCount());
+		ColumnMapping<ProteinGroupsTableHeaders> columns = ColumnMapping.compile(table, ProteinGroupsTableHeaders.class, headerMap);
+		int idColumn = columns.getRequiredColumn(ProteinGroupsTableHeaders.ID);
+		int databaseIdColumn = columns.getRequiredColumn(ProteinGroupsTableHeaders.DATABASE_ID);
+		int namesColumn = columns.getRequiredColumn(ProteinGroupsTableHeaders.NAMES);
+		int geneNamesColumn = columns.getRequiredColumn(ProteinGroupsTableHeaders.GENE_NAMES);
+		int sequenceCoverageColumn = columns.getRequiredColumn(ProteinGroupsTableHeaders.SEQUENCE_COVERAGE);
+		// Go through each row and create new ProteinGroup object
+		ProgressReporter progressReporter = ProgressReporter.forItems(this::setProgressProperty, table.getRowCount());
 		setStatusProperty("Parse protein groups...");
-		for (Map<String, String> properties : contentList) {
-			setProgressProperty((double) index/numberOfEntries);
-			Map<ProteinGroupsTableHeaders, String> standardizedProperties = standardizeProperties(properties);
-			proteinList.add(Integer.parseInt(standardizedProperties.get(ProteinGroupsTableHeaders.ID)), new ProteinGroup(standardizedProperties));
-			index++;
+		for (int row = 0; row < table.getRowCount(); row++) {
+			progressReporter.update(row);
+			int id = table.getInt(idColumn, row);
+			ProteinGroup proteinGroup = new ProteinGroup(String.valueOf(id));
+			proteinGroup.setDatabaseIds(intern(table.getString(databaseIdColumn, row)));
+			proteinGroup.setNames(intern(table.getString(namesColumn, row)));
+			proteinGroup.setGeneNames(intern(table.getString(geneNamesColumn, row)));
+			proteinGroup.setSequenceCoverage(table.getDouble(sequenceCoverageColumn, row));
+			proteinList.add(proteinGroup);
 		}
 		return proteinList;
 	}
 	
-	/**
-	 * Standardizes the MaxQuant table headers to general enum headers.
-	 * @param properties
-	 * @return standardized properties
-	 */
-	private Map<ProteinGroupsTableHeaders, String> standardizeProperties(Map<String, String> properties) {
-		Map<ProteinGroupsTableHeaders, String> standardizedContentList = new HashMap<ProteinGroupsTableHeaders, String>();
-		for (Entry<String, String> entry : properties.entrySet()) {
-			if (ProteinGroupsHeadersMap.containsValue(entry.getKey())) {
-				standardizedContentList.put(ProteinGroupsHeadersMap.inverse().get(entry.getKey()), (String) entry.getValue());
-			}
-		}
-		return standardizedContentList;
-	}
-	
 	/**
 	 * Gets standard table headers.
 	 * @return map of standard table headers
@@ -125,20 +115,20 @@ public class MQProteinGroupsReader extends MQTablesIO implements MQReader {
 	}
 	
 	@Override
-	public ReadOnlyDoubleProperty getProgressProperty() {
-		return progressProperty;
+	public void addProgressListener(ProgressListener listener) {
+		progressSupport.addListener(listener);
 	}
 	
-	private void setProgressProperty(double value) {
-		progressProperty.set(value);
+	@Override
+	public void removeProgressListener(ProgressListener listener) {
+		progressSupport.removeListener(listener);
 	}
 	
-	@Override
-	public ReadOnlyStringProperty getStatusProperty() {
-		return statusProperty;
+	private void setProgressProperty(double value) {
+		progressSupport.progressChanged(value);
 	}
 	
 	private void setStatusProperty(String status) {
-		statusProperty.set(status);
+		progressSupport.statusChanged(status);
 	}
 }
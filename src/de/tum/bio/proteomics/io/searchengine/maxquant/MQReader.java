@@ -6,12 +6,16 @@ import java.util.Map;
 
 import de.tum.bio.proteomics.analysis.AnalysisComponent;
 import de.tum.bio.proteomics.headers.TableHeaders;
-import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyStringProperty;
+import de.tum.bio.utils.ProgressListener;
+import de.tum.bio.utils.RowFilter;
+import de.tum.bio.utils.StringPool;
 
 public interface MQReader {
 	public boolean fileExists(String txtDirectory, String prefix);
 	public <E extends Enum<E> & TableHeaders> List<AnalysisComponent> read(String txtDirectory, Map<E, String> headerMap) throws IOException;
-	public ReadOnlyDoubleProperty getProgressProperty();
-	public ReadOnlyStringProperty getStatusProperty();
+	public void addRowFilter(RowFilter rowFilter);
+	public void setCacheEnabled(boolean cacheEnabled);
+	public void setStringPool(StringPool stringPool);
+	public void addProgressListener(ProgressListener listener);
+	public void removeProgressListener(ProgressListener listener);
 }
\ No newline at end of file
@@ -6,27 +6,23 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import de.tum.bio.proteomics.AnalysisSummary;
+import de.tum.bio.proteomics.RawFile;
 import de.tum.bio.proteomics.analysis.AnalysisComponent;
 import de.tum.bio.proteomics.headers.SummaryTableHeaders;
 import de.tum.bio.proteomics.headers.TableHeaders;
+import de.tum.bio.utils.ColumnMapping;
+import de.tum.bio.utils.ColumnarTable;
+import de.tum.bio.utils.ProgressListener;
+import de.tum.bio.utils.ProgressSupport;
 import de.tum.bio.utils.SeparatedTextReader;
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyStringProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
 
 public class MQSummaryReader extends MQTablesIO implements MQReader {
 	
-	private DoubleProperty progressProperty = new SimpleDoubleProperty();
-	private StringProperty statusProperty = new SimpleStringProperty();
+	private ProgressSupport progressSupport = new ProgressSupport();
 	
 	public MQSummaryReader() {
 		// empty
@@ -41,7 +37,7 @@ public class MQSummaryReader extends MQTablesIO implements MQReader {
 	@Override
 	public <E extends Enum<E> & TableHeaders> List<AnalysisComponent> read(String txtDirectory, Map<E, String> headerMap) throws IOException {
 		List<AnalysisComponent> summary = null;
-		List<HashMap<String, String>> contentList = null;
+		ColumnarTable table = null;
 		
 		if (headerMap == null) {
 			headerMap = (Map<E, String>) initStandardHeaders();
@@ -49,12 +45,11 @@ public class MQSummaryReader extends MQTablesIO implements MQReader {
 		try {
 			Path path = getPath(txtDirectory, "");
 			SeparatedTextReader textReader = new SeparatedTextReader();
-			progressProperty.bind(textReader.getProgressProperty());
-			statusProperty.bind(textReader.getStatusProperty());
-			contentList = textReader.readFile(path, headerMap, "\t");
-			progressProperty.unbind();
-			statusProperty.unbind();
-			summary = createListOfSummaries(contentList);
+			textReader.setCacheEnabled(isCacheEnabled());
+			textReader.addProgressListener(progressSupport);
+			table = textReader.readTable(path, SeparatedTextReader.resolveColumnTypes(headerMap, SUMMARY_COLUMN_TYPES), "\t", getRowFilters());
+			textReader.removeProgressListener(progressSupport);
+			summary = createListOfSummaries(table, headerMap);
 		} catch (IOException e) {
 			throw e;
 		}
@@ -68,42 +63,45 @@ public class MQSummaryReader extends MQTablesIO implements MQReader {
 		return Paths.get(txtDirectory + FileSystems.getDefault().getSeparator() + prefix + FILENAME_SUMMARY);
 	}
 	
-	private List<AnalysisComponent> createListOfSummaries(List<HashMap<String, String>> contentList) {
-		List<Map<SummaryTableHeaders, String>> propertiesList = new ArrayList<>();
+	/**
+	 * Creates the analysis summary from the raw file rows.
+	 * @param table
+	 * @param headerMap
+	 * @return list holding the summary
+	 * @throws IOException
+	 */
+	private <E extends Enum<E> & TableHeaders> List<AnalysisComponent> createListOfSummaries(ColumnarTable table, Map<E, String> headerMap) throws IOException {
+		ColumnMapping<SummaryTableHeaders> columns = ColumnMapping.compile(table, SummaryTableHeaders.class, headerMap);
+		int rawFileColumn = columns.getRequiredColumn(SummaryTableHeaders.RAW_FILE);
+		int experimentColumn = columns.getRequiredColumn(SummaryTableHeaders.EXPERIMENT);
+		int variableModificationsColumn = columns.getRequiredColumn(SummaryTableHeaders.VARIABLE_MODIFICATIONS);
+		List<RawFile> rawFiles = new ArrayList<>(table.getRowCount());
 		setStatusProperty("Collecting analysis properties...");
-		for (Map<String, String> properties : contentList) {
-			propertiesList.add(standardizeProperties(properties));
+		for (int row = 0; row < table.getRowCount(); row++) {
+			rawFiles.add(new RawFile(intern(table.getString(rawFileColumn, row)), intern(table.getString(experimentColumn, row)),
+					intern(table.getString(variableModificationsColumn, row))));
 		}
-		AnalysisSummary summary = new AnalysisSummary(propertiesList);
 		List<AnalysisComponent> summaryList = new ArrayList<>();
-		summaryList.add(summary);
+		summaryList.add(AnalysisSummary.fromRawFiles(rawFiles));
 		return summaryList;
 	}
 
 	@Override
-	public ReadOnlyDoubleProperty getProgressProperty() {
-		return progressProperty;
+	public void addProgressListener(ProgressListener listener) {
+		progressSupport.addListener(listener);
 	}
-
+	
 	@Override
-	public ReadOnlyStringProperty getStatusProperty() {
-		return statusProperty;
+	public void removeProgressListener(ProgressListener listener) {
+		progressSupport.removeListener(listener);
 	}
-	
+
 	private void setProgressProperty(double value) {
-		progressProperty.set(value);
+		progressSupport.progressChanged(value);
 	}
 	
 	private void setStatusProperty(String status) {
-		statusProperty.set(status);
-	}
-	
-	private Map<SummaryTableHeaders, String> standardizeProperties(Map<String, String> properties) {
-		Map<SummaryTableHeaders, String> standardizedContentList = new HashMap<SummaryTableHeaders, String>();
-		for (Entry<String, String> entry : properties.entrySet()) {
-			standardizedContentList.put(SummaryHeadersMap.inverse().get(entry.getKey()), (String) entry.getValue());
-		}
-		return standardizedContentList;
+		progressSupport.statusChanged(status);
 	}
 	
 	private Map<SummaryTableHeaders, String> initStandardHeaders() {
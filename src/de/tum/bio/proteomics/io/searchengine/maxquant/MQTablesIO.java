@@ -1,16 +1,18 @@
 package de.tum.bio.proteomics.io.searchengine.maxquant;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
-
 import de.tum.bio.proteomics.headers.EvidenceTableHeaders;
 import de.tum.bio.proteomics.headers.ModificationsTableHeaders;
 import de.tum.bio.proteomics.headers.PeptidesTableHeaders;
 import de.tum.bio.proteomics.headers.ProteinGroupsTableHeaders;
 import de.tum.bio.proteomics.headers.SummaryTableHeaders;
+import de.tum.bio.utils.ColumnType;
+import de.tum.bio.utils.RowFilter;
+import de.tum.bio.utils.StringPool;
 
 /**
  * Constants to read MaxQuant files
@@ -22,6 +24,24 @@ public abstract class MQTablesIO {
 	
 	protected static final String ARRAY_SEPARATOR = ";";
 	
+	public static final String HEADER_REVERSE = "Reverse";
+	public static final String HEADER_POTENTIAL_CONTAMINANT = "Potential contaminant";
+	public static final String FLAG_SET = "+";
+	
+	/**
+	 * Drops decoy hits.
+	 */
+	public static final RowFilter EXCLUDE_REVERSE = RowFilter.notEqualTo(HEADER_REVERSE, FLAG_SET);
+	/**
+	 * Drops potential contaminants.
+	 */
+	public static final RowFilter EXCLUDE_CONTAMINANTS = RowFilter.notEqualTo(HEADER_POTENTIAL_CONTAMINANT, FLAG_SET);
+	
+	private List<RowFilter> rowFilters = new ArrayList<>();
+	private boolean cacheEnabled = false;
+	// Shared by the identifications of several directories, if set
+	private StringPool stringPool;
+	
 	protected static final String FILENAME_EVIDENCE = "evidence.txt";
 	protected static final String[] STANDARD_EVIDENCE_HEADERS = {
 			"id",
@@ -85,7 +105,17 @@ public abstract class MQTablesIO {
 			put(EvidenceTableHeaders.PEPTIDE_ID, "Peptide ID");
 			put(EvidenceTableHeaders.MOD_PEPTIDE_ID, "Mod. peptide ID");
 		}};
-	protected static BiMap<EvidenceTableHeaders, String> EvidenceHeadersMap;
+	
+	@SuppressWarnings("serial")
+	protected static final Map<EvidenceTableHeaders, ColumnType> EVIDENCE_COLUMN_TYPES = new HashMap<EvidenceTableHeaders, ColumnType>() {{
+			put(EvidenceTableHeaders.ID, ColumnType.INT);
+			put(EvidenceTableHeaders.SEQUENCE, ColumnType.STRING);
+			put(EvidenceTableHeaders.INTENSITY, ColumnType.LONG);
+			put(EvidenceTableHeaders.EXPERIMENT, ColumnType.CATEGORY);
+			put(EvidenceTableHeaders.NUMBER_OF_DATA_POINTS, ColumnType.INT);
+			put(EvidenceTableHeaders.PEPTIDE_ID, ColumnType.INT);
+			put(EvidenceTableHeaders.MOD_PEPTIDE_ID, ColumnType.INT);
+		}};
 	
 	@SuppressWarnings("serial")
 	protected static final Map<PeptidesTableHeaders, String> PEPTIDES_HEADERS_UNI = new HashMap<PeptidesTableHeaders, String>() {{
@@ -102,7 +132,22 @@ public abstract class MQTablesIO {
 			put(PeptidesTableHeaders.EVIDENCE_IDS, "Evidence IDs");
 			put(PeptidesTableHeaders.INTENSITY, "Intensity");
 		}};
-	protected static BiMap<PeptidesTableHeaders, String> PeptidesHeadersMap;
+	
+	@SuppressWarnings("serial")
+	protected static final Map<PeptidesTableHeaders, ColumnType> PEPTIDES_COLUMN_TYPES = new HashMap<PeptidesTableHeaders, ColumnType>() {{
+			put(PeptidesTableHeaders.ID, ColumnType.INT);
+			put(PeptidesTableHeaders.SEQUENCE, ColumnType.STRING);
+			put(PeptidesTableHeaders.N_TERM_CLEAVAGE_WINDOW, ColumnType.STRING);
+			put(PeptidesTableHeaders.C_TERM_CLEAVAGE_WINDOW, ColumnType.STRING);
+			put(PeptidesTableHeaders.START_POSITION, ColumnType.INT);
+			put(PeptidesTableHeaders.END_POSITION, ColumnType.INT);
+			put(PeptidesTableHeaders.MSMSCOUNTS, ColumnType.INT);
+			put(PeptidesTableHeaders.MSMSIDS, ColumnType.STRING);
+			put(PeptidesTableHeaders.SCORE, ColumnType.DOUBLE);
+			put(PeptidesTableHeaders.PROTEINGROUPS_IDS, ColumnType.CATEGORY);
+			put(PeptidesTableHeaders.EVIDENCE_IDS, ColumnType.STRING);
+			put(PeptidesTableHeaders.INTENSITY, ColumnType.LONG);
+		}};
 	
 	@SuppressWarnings("serial")
 	protected static final Map<ProteinGroupsTableHeaders, String> PROTEINGROUPS_HEADERS_UNI = new HashMap<ProteinGroupsTableHeaders, String>() {{
@@ -112,7 +157,15 @@ public abstract class MQTablesIO {
 			put(ProteinGroupsTableHeaders.GENE_NAMES, "Gene names");
 			put(ProteinGroupsTableHeaders.SEQUENCE_COVERAGE, "Sequence coverage [%]");
 		}};
-	protected static BiMap<ProteinGroupsTableHeaders, String> ProteinGroupsHeadersMap;
+	
+	@SuppressWarnings("serial")
+	protected static final Map<ProteinGroupsTableHeaders, ColumnType> PROTEINGROUPS_COLUMN_TYPES = new HashMap<ProteinGroupsTableHeaders, ColumnType>() {{
+			put(ProteinGroupsTableHeaders.ID, ColumnType.INT);
+			put(ProteinGroupsTableHeaders.DATABASE_ID, ColumnType.STRING);
+			put(ProteinGroupsTableHeaders.NAMES, ColumnType.STRING);
+			put(ProteinGroupsTableHeaders.GENE_NAMES, ColumnType.STRING);
+			put(ProteinGroupsTableHeaders.SEQUENCE_COVERAGE, ColumnType.DOUBLE);
+		}};
 	
 	@SuppressWarnings("serial")
 	protected static final Map<SummaryTableHeaders, String> SUMMARY_HEADERS_UNI = new HashMap<SummaryTableHeaders, String>() {{
@@ -120,7 +173,13 @@ public abstract class MQTablesIO {
 			put(SummaryTableHeaders.EXPERIMENT, "Experiment");
 			put(SummaryTableHeaders.VARIABLE_MODIFICATIONS, "Variable modifications");
 		}};
-	protected static BiMap<SummaryTableHeaders, String> SummaryHeadersMap;
+	
+	@SuppressWarnings("serial")
+	protected static final Map<SummaryTableHeaders, ColumnType> SUMMARY_COLUMN_TYPES = new HashMap<SummaryTableHeaders, ColumnType>() {{
+			put(SummaryTableHeaders.RAW_FILE, ColumnType.STRING);
+			put(SummaryTableHeaders.EXPERIMENT, ColumnType.CATEGORY);
+			put(SummaryTableHeaders.VARIABLE_MODIFICATIONS, ColumnType.CATEGORY);
+		}};
 	
 	@SuppressWarnings("serial")
 	protected static final Map<ModificationsTableHeaders, String> MODIFICATIONS_HEADERS_UNI = new HashMap<ModificationsTableHeaders, String>() {{
@@ -135,14 +194,67 @@ public abstract class MQTablesIO {
 			put(ModificationsTableHeaders.PEPTIDE_IDS, "Peptide IDs");
 			put(ModificationsTableHeaders.SEQUENCE_WINDOW, "Probabilities"); // TODO: is this correct?
 		}};
-	protected static BiMap<ModificationsTableHeaders, String> ModificationsHeadersMap;
 	
+	@SuppressWarnings("serial")
+	protected static final Map<ModificationsTableHeaders, ColumnType> MODIFICATIONS_COLUMN_TYPES = new HashMap<ModificationsTableHeaders, ColumnType>() {{
+			put(ModificationsTableHeaders.ID, ColumnType.INT);
+			put(ModificationsTableHeaders.LOCALIZATION_PROBABILITY, ColumnType.DOUBLE);
+			put(ModificationsTableHeaders.SCORE_DIFF, ColumnType.DOUBLE);
+			put(ModificationsTableHeaders.PEP, ColumnType.DOUBLE);
+			put(ModificationsTableHeaders.SCORE, ColumnType.DOUBLE);
+			put(ModificationsTableHeaders.DELTA_SCORE, ColumnType.DOUBLE);
+			put(ModificationsTableHeaders.SCORE_FOR_LOCALIZATION, ColumnType.DOUBLE);
+			put(ModificationsTableHeaders.POSITION_IN_PEPTIDE, ColumnType.INT);
+			put(ModificationsTableHeaders.PEPTIDE_IDS, ColumnType.STRING);
+			put(ModificationsTableHeaders.SEQUENCE_WINDOW, ColumnType.STRING);
+		}};
+	
+	/**
+	 * Adds a filter that rows have to pass. Table based readers apply it while parsing, before any object is created for a row.
+	 * @param rowFilter
+	 */
+	public void addRowFilter(RowFilter rowFilter) {
+		rowFilters.add(rowFilter);
+	}
+	
+	public List<RowFilter> getRowFilters() {
+		return rowFilters;
+	}
+	
+	/**
+	 * Enables the binary cache files next to the MaxQuant tables. Disabled by default, as the cache files are written into
+	 * the MaxQuant directories.
+	 * @param cacheEnabled
+	 */
+	public void setCacheEnabled(boolean cacheEnabled) {
+		this.cacheEnabled = cacheEnabled;
+	}
+	
+	public boolean isCacheEnabled() {
+		return cacheEnabled;
+	}
+	
+	/**
+	 * Shares repeated values like protein names or experiments with other readers, e.g. when many directories are loaded.
+	 * @param stringPool
+	 */
+	public void setStringPool(StringPool stringPool) {
+		this.stringPool = stringPool;
+	}
+	
+	public StringPool getStringPool() {
+		return stringPool;
+	}
 	
-	protected void initBiMaps() {
-		PeptidesHeadersMap = HashBiMap.create(PEPTIDES_HEADERS_UNI);
-		ProteinGroupsHeadersMap = HashBiMap.create(PROTEINGROUPS_HEADERS_UNI);
-		EvidenceHeadersMap = HashBiMap.create(EVIDENCE_HEADERS_UNI);
-		SummaryHeadersMap = HashBiMap.create(SUMMARY_HEADERS_UNI);
-		ModificationsHeadersMap = HashBiMap.create(MODIFICATIONS_HEADERS_UNI);
+	/**
+	 * Gets the shared instance of a value, if a StringPool is set.
+	 * @param value
+	 * @return shared or same value
+	 */
+	protected String intern(String value) {
+		if (stringPool == null || value == null) {
+			return value;
+		}
+		return stringPool.intern(value);
 	}
 }
\ No newline at end of file
@@ -2,14 +2,27 @@ package de.tum.bio.proteomics.io.statistics;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import de.tum.bio.proteomics.StatisticsFile;
 import de.tum.bio.proteomics.headers.StatisticsTableHeaders;
-import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyStringProperty;
+import de.tum.bio.utils.IOFutures;
+import de.tum.bio.utils.ProgressListener;
 
 public interface StatisticsReader {
 	public StatisticsFile read(String filePath, Map<StatisticsTableHeaders, String> headerMap) throws IOException;
-	public ReadOnlyDoubleProperty getProgressProperty();
-	public ReadOnlyStringProperty getStatusProperty();
+	public void addProgressListener(ProgressListener listener);
+	public void removeProgressListener(ProgressListener listener);
+	
+	/**
+	 * Reads a statistics file on the given executor. A failed read completes the future with an UncheckedIOException.
+	 * @param filePath
+	 * @param headerMap
+	 * @param executor
+	 * @return future of the statistics file
+	 */
+	public default CompletableFuture<StatisticsFile> readAsync(String filePath, Map<StatisticsTableHeaders, String> headerMap, Executor executor) {
+		return IOFutures.supplyAsync(() -> read(filePath, headerMap), executor);
+	}
 }
\ No newline at end of file
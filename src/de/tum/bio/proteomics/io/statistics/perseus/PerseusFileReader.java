@@ -4,20 +4,15 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import de.tum.bio.proteomics.StatisticsFile;
 import de.tum.bio.proteomics.headers.StatisticsTableHeaders;
 import de.tum.bio.proteomics.io.statistics.StatisticsReader;
+import de.tum.bio.utils.ColumnarTable;
+import de.tum.bio.utils.ProgressListener;
+import de.tum.bio.utils.ProgressSupport;
 import de.tum.bio.utils.SeparatedTextReader;
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyStringProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
 
 /**
  * This class reads a statistical analysis.
@@ -27,8 +22,7 @@ import javafx.beans.property.StringProperty;
 
 public final class PerseusFileReader extends PerseusTablesIO implements StatisticsReader {
 	
-	private DoubleProperty progressProperty = new SimpleDoubleProperty();
-	private StringProperty statusProperty = new SimpleStringProperty();
+	private ProgressSupport progressSupport = new ProgressSupport();
 	
 	public PerseusFileReader() {
 		// empty
@@ -49,13 +43,11 @@ public final class PerseusFileReader extends PerseusTablesIO implements Statisti
 		try {
 			Path path = Paths.get(filePath);
 			SeparatedTextReader textReader = new SeparatedTextReader();
-			progressProperty.bind(textReader.getProgressProperty());
-			statusProperty.bind(textReader.getStatusProperty());
-			List<HashMap<String, String>> contentList = textReader.readFile(path, headerMap, "\t");
-			progressProperty.unbind();
-			statusProperty.unbind();
+			textReader.addProgressListener(progressSupport);
+			ColumnarTable table = textReader.readTable(path, SeparatedTextReader.resolveColumnTypes(headerMap, STATISTICS_COLUMN_TYPES), "\t");
+			textReader.removeProgressListener(progressSupport);
 			setStatusProperty("Parse Perseus file...");
-			statisticsFile = new StatisticsFile(-1, resolveProteinIds(contentList, headerMap), path.getFileName().toString());
+			statisticsFile = new StatisticsFile(-1, resolveProteinIds(table, headerMap), path.getFileName().toString());
 		} catch (IOException e) {
 			throw e;
 		}
@@ -64,44 +56,47 @@ public final class PerseusFileReader extends PerseusTablesIO implements Statisti
 	
 	/**
 	 * Changes the data structure of the initial tab text reader result to an understandable version for StatisticsFile generation.
-	 * @param contentList
+	 * @param table
 	 * @return map
 	 */
-	private static Map<String, Map<StatisticsTableHeaders, Double>> resolveProteinIds(List<HashMap<String, String>> contentList, Map<StatisticsTableHeaders, String> headerMap) {
+	private static Map<String, Map<StatisticsTableHeaders, Double>> resolveProteinIds(ColumnarTable table, Map<StatisticsTableHeaders, String> headerMap) {
 		Map<String, Map<StatisticsTableHeaders, Double>> resolvedMap = new HashMap<>();
-		for (Map<String, String> listEntry : contentList) {
+		int nameColumn = table.getColumnIndex(headerMap.get(StatisticsTableHeaders.NAME));
+		int enrichmentColumn = table.getColumnIndex(headerMap.get(StatisticsTableHeaders.LOG2_ENRICHMENT));
+		int pValueColumn = table.getColumnIndex(headerMap.get(StatisticsTableHeaders.MINUS_LOG10_PVALUE));
+		for (int row = 0; row < table.getRowCount(); row++) {
 			String name = null;
 			Map<StatisticsTableHeaders, Double> tmp = new HashMap<>(2);
-			for (Entry<String, String> mapEntry : listEntry.entrySet()) {
-				if (mapEntry.getKey().equals(headerMap.get(StatisticsTableHeaders.NAME))) {
-					name = mapEntry.getValue();
-				}
-				if (mapEntry.getKey().equals(headerMap.get(StatisticsTableHeaders.LOG2_ENRICHMENT))) {
-					tmp.put(StatisticsTableHeaders.LOG2_ENRICHMENT, Double.parseDouble(mapEntry.getValue()));
-				}
-				if (mapEntry.getKey().equals(headerMap.get(StatisticsTableHeaders.MINUS_LOG10_PVALUE))) {
-					tmp.put(StatisticsTableHeaders.MINUS_LOG10_PVALUE, Double.parseDouble(mapEntry.getValue()));
-				}
+			if (nameColumn >= 0) {
+				name = table.getString(nameColumn, row);
 			}
-			resolvedMap.put(name, new HashMap<>(tmp));
+			if (enrichmentColumn >= 0) {
+				tmp.put(StatisticsTableHeaders.LOG2_ENRICHMENT, table.getDouble(enrichmentColumn, row));
+			}
+			if (pValueColumn >= 0) {
+				tmp.put(StatisticsTableHeaders.MINUS_LOG10_PVALUE, table.getDouble(pValueColumn, row));
+			}
+			resolvedMap.put(name, tmp);
 		}
 		return resolvedMap;
 	}
 	
-	public ReadOnlyDoubleProperty getProgressProperty() {
-		return progressProperty;
+	@Override
+	public void addProgressListener(ProgressListener listener) {
+		progressSupport.addListener(listener);
 	}
 	
-	@SuppressWarnings("unused")
-	private void setProgressProperty(double value) {
-		progressProperty.set(value);
+	@Override
+	public void removeProgressListener(ProgressListener listener) {
+		progressSupport.removeListener(listener);
 	}
 	
-	public ReadOnlyStringProperty getStatusProperty() {
-		return statusProperty;
+	@SuppressWarnings("unused")
+	private void setProgressProperty(double value) {
+		progressSupport.progressChanged(value);
 	}
 	
 	private void setStatusProperty(String status) {
-		statusProperty.set(status);
+		progressSupport.statusChanged(status);
 	}
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 
 import de.tum.bio.proteomics.headers.StatisticsTableHeaders;
+import de.tum.bio.utils.ColumnType;
 
 public abstract class PerseusTablesIO {
 	
@@ -18,6 +19,13 @@ public abstract class PerseusTablesIO {
 		}};
 	protected static BiMap<StatisticsTableHeaders, String> StatisticsHeadersMap;
 	
+	@SuppressWarnings("serial")
+	protected static final Map<StatisticsTableHeaders, ColumnType> STATISTICS_COLUMN_TYPES = new HashMap<StatisticsTableHeaders, ColumnType>() {{
+			put(StatisticsTableHeaders.NAME, ColumnType.STRING);
+			put(StatisticsTableHeaders.LOG2_ENRICHMENT, ColumnType.DOUBLE);
+			put(StatisticsTableHeaders.MINUS_LOG10_PVALUE, ColumnType.DOUBLE);
+		}};
+	
 	protected void initBiMaps() {
 		StatisticsHeadersMap = HashBiMap.create(STATISTICS_HEADERS);
 	}
@@ -0,0 +1,155 @@
+package de.tum.bio.proteomics.tools;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+import java.util.stream.IntStream;
+
+import de.tum.bio.proteomics.FastaFile;
+import de.tum.bio.proteomics.PackedSequence;
+import de.tum.bio.proteomics.ProteinGroup;
+import de.tum.bio.utils.ProgressReporter;
+
+/**
+ * Attaches the sequences of a FASTA file to protein groups.
+ * All member accessions of a group are tried in order, each first as is and then without contaminant prefix,
+ * version and isoform suffix, also against database accessions that carry a version or isoform themselves.
+ * Sequences are looked up in parallel and attached afterwards, so the groups are only modified by the calling thread.
+ *
+ */
+
+public final class SequenceCombiner {
+
+	private static final String CONTAMINANT_PREFIX = "CON__";
+
+	private final FastaFile fastaFile;
+	// Database accessions by normalized accession, only for accessions that change when normalized
+	private final Map<String, String> normalizedIds = new HashMap<>();
+
+	private ProgressReporter progressReporter;
+
+	/**
+	 * Indexes the accessions of the database.
+	 * @param fastaFile
+	 */
+	public SequenceCombiner(FastaFile fastaFile) {
+		this.fastaFile = fastaFile;
+		for (String id : fastaFile.getIds()) {
+			String normalizedId = normalize(id);
+			if (normalizedId != id) {
+				// The smallest accession wins, so the result does not depend on the order of the database
+				normalizedIds.merge(normalizedId, id, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+			}
+		}
+	}
+
+	/**
+	 * Sets the sequences of the protein groups that are found in the database.
+	 * @param proteinGroups
+	 * @param progress receives the progress between 0 and 1
+	 * @return number of protein groups that got a sequence
+	 */
+	public int combine(Collection<ProteinGroup> proteinGroups, DoubleConsumer progress) {
+		List<ProteinGroup> groups = new ArrayList<>(proteinGroups);
+		progressReporter = ProgressReporter.forItems(progress, groups.size());
+		AtomicLong done = new AtomicLong();
+		PackedSequence[] sequences = new PackedSequence[groups.size()];
+		IntStream.range(0, groups.size()).parallel().forEach(i -> {
+			sequences[i] = findSequence(groups.get(i).getDatabaseIds());
+			reportProgress(done.incrementAndGet());
+		});
+		int resolved = 0;
+		for (int i = 0; i < sequences.length; i++) {
+			if (sequences[i] != null) {
+				groups.get(i).setSequence(sequences[i]);
+				resolved++;
+			}
+		}
+		return resolved;
+	}
+
+	/**
+	 * @param databaseIds semicolon separated member accessions
+	 * @return sequence of the first member that is found, or null
+	 */
+	public PackedSequence findSequence(String databaseIds) {
+		if (databaseIds == null || databaseIds.isEmpty()) {
+			return null;
+		}
+		int start = 0;
+		while (start <= databaseIds.length()) {
+			int end = databaseIds.indexOf(';', start);
+			if (end < 0) {
+				end = databaseIds.length();
+			}
+			if (end > start) {
+				PackedSequence sequence = findMember(databaseIds.substring(start, end).trim());
+				if (sequence != null) {
+					return sequence;
+				}
+			}
+			start = end + 1;
+		}
+		return null;
+	}
+
+	private PackedSequence findMember(String accession) {
+		if (accession.isEmpty()) {
+			return null;
+		}
+		PackedSequence sequence = fastaFile.getSequenceById(accession);
+		if (sequence != null) {
+			return sequence;
+		}
+		String normalizedAccession = normalize(accession);
+		if (normalizedAccession != accession) {
+			sequence = fastaFile.getSequenceById(normalizedAccession);
+			if (sequence != null) {
+				return sequence;
+			}
+		}
+		String id = normalizedIds.get(normalizedAccession);
+		return id != null ? fastaFile.getSequenceById(id) : null;
+	}
+
+	private synchronized void reportProgress(long done) {
+		progressReporter.update(done);
+	}
+
+	/**
+	 * Removes a contaminant prefix, a version suffix like .2 and an isoform suffix like -2.
+	 * @param accession
+	 * @return normalized accession, the same instance if nothing was removed
+	 */
+	static String normalize(String accession) {
+		int start = accession.startsWith(CONTAMINANT_PREFIX) ? CONTAMINANT_PREFIX.length() : 0;
+		int end = stripNumberSuffix(accession, start, accession.length(), '.');
+		end = stripNumberSuffix(accession, start, end, '-');
+		if (start == 0 && end == accession.length()) {
+			return accession;
+		}
+		return accession.substring(start, end);
+	}
+
+	/**
+	 * @param accession
+	 * @param start
+	 * @param end
+	 * @param separator
+	 * @return start of the suffix made of the separator and digits, or end if there is none
+	 */
+	private static int stripNumberSuffix(String accession, int start, int end, char separator) {
+		int i = end;
+		while (i > start && accession.charAt(i - 1) >= '0' && accession.charAt(i - 1) <= '9') {
+			i--;
+		}
+		if (i < end && i - 1 > start && accession.charAt(i - 1) == separator) {
+			return i - 1;
+		}
+		return end;
+	}
+}
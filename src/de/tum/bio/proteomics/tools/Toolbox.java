@@ -10,6 +10,7 @@ import de.tum.bio.proteomics.FastaFile;
 import de.tum.bio.proteomics.PeptideId;
 import de.tum.bio.proteomics.ProteinGroup;
 import de.tum.bio.proteomics.StatisticsFile;
+import de.tum.bio.utils.ProgressReporter;
 import javafx.collections.ObservableMap;
 import javafx.concurrent.Task;
 import javafx.scene.control.Alert;
@@ -34,30 +35,20 @@ public final class Toolbox {
 	
 	public static void combineSequencesAndProteinGroups(FastaFile fastaFile, ObservableMap<String, ProteinGroup> observableMap, Main mainApp) {
 		if (fastaFile != null && observableMap != null) {
-			Task<Void> task = new Task<Void>() {
+			Task<Integer> task = new Task<Integer>() {
 				@Override
-				protected Void call() throws Exception {
-					long numberOfProteinGroups = observableMap.size();
-					long index = 0;
+				protected Integer call() throws Exception {
+					updateMessage("Index accessions...");
+					SequenceCombiner sequenceCombiner = new SequenceCombiner(fastaFile);
 					updateMessage("Combining information...");
-					// Go through each protein
-					for (ProteinGroup proteinGroup : observableMap.values()) {
-						updateProgress(index, numberOfProteinGroups);
-						String leadingDatabaseIdList = proteinGroup.getDatabaseIds().split(";")[0];
-						String sequence = fastaFile.getSequenceById(leadingDatabaseIdList);
-						if (sequence != null) {
-							proteinGroup.setSequence(sequence);
-							updateMessage(proteinGroup.getNames());
-						}
-						index++;
-					}
-					return null;
+					// Groups are resolved in parallel, progress is published at a bounded rate
+					return sequenceCombiner.combine(observableMap.values(), progress -> updateProgress(progress, 1.0));
 				}
 				
 				@Override
 				protected void succeeded() {
 					super.succeeded();
-					updateMessage("Done.");
+					updateMessage("Sequences added to " + getValue() + " of " + observableMap.size() + " protein groups.");
 					updateProgress(0.0, 1.0);
 				}
 				
@@ -90,14 +81,15 @@ public final class Toolbox {
 			Task<Void> task = new Task<Void>() {
 				@Override
 				protected Void call() throws Exception {
-					long numberOfProteinGroups = proteinGroupsMap.size();
 					long index = 0;
 					String id = null;
+					ProgressReporter progressReporter = ProgressReporter.forItems(progress -> updateProgress(progress, 1.0), proteinGroupsMap.size());
 					updateMessage("Combining information...");
 					// Go through each protein
 					for (Entry<String, ProteinGroup> proteinGroup : proteinGroupsMap.entrySet()) {
-						updateProgress(index, numberOfProteinGroups);
-						updateMessage(proteinGroup.getValue().getNames());
+						if (progressReporter.update(index)) {
+							updateMessage(proteinGroup.getValue().getNames());
+						}
 						id = proteinGroup.getValue().getDatabaseIds();
 						proteinGroup.getValue().setLog2Enrichment(statisticsFile.getEnrichmentByName(id));
 						proteinGroup.getValue().setMinusLog10PValue(statisticsFile.getPValueByName(id));
@@ -1,6 +1,7 @@
 package de.tum.bio.sequenceviewer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -9,6 +10,7 @@ import java.util.Map.Entry;
 
 import com.compomics.util.experiment.biology.Enzyme;
 
+import de.tum.bio.proteomics.IntensityMatrix;
 import de.tum.bio.proteomics.Peptide;
 import de.tum.bio.proteomics.PeptideId;
 import de.tum.bio.sequenceviewer.aaintensityprofiles.ProfileGenerator;
@@ -148,8 +150,12 @@ public class SequenceViewer extends BorderPane {
 				@Override
 				protected Void call() throws Exception {
 					updateProgress(-1.0, 1.0);
+					if (peptideId.hasLazyEvidence()) {
+						updateMessage("Read evidences of protein group " + proteinGroupId + "...");
+						peptideId.loadEvidence(proteinGroupId);
+					}
 					updateMessage("Compute sequence view...");
-					
+
 					// Build view components
 					centerVBox = new VBox();
 					centerVBox.setMaxHeight(Double.MAX_VALUE);
@@ -321,12 +327,13 @@ public class SequenceViewer extends BorderPane {
 	private List<SequenceViewerPeptide> buildPeptideRepresentationsList(List<Peptide> peptides) {
 		List<SequenceViewerPeptide> peptideRepresentationsList = new ArrayList<>();
 		for (Peptide peptide : peptides) {
-			if (proteinSequence.substring(peptide.getStartPosition()-1, peptide.getEndPosition()).equals(peptide.getSequenceAsString())) {
+			String sequence = peptide.getSequenceAsString();
+			if (peptide.getEndPosition() - peptide.getStartPosition() + 1 == sequence.length() && proteinSequence.startsWith(sequence, peptide.getStartPosition()-1)) {
 				peptideRepresentationsList.add(new SequenceViewerPeptide(peptide, COLUMN_WIDTH));
 			} else {
-				int index = proteinSequence.indexOf(peptide.getSequenceAsString());
-				if ((index >= 0) && ((index + peptide.getSequenceAsString().length()) <= proteinSequence.length())) {
-					SequenceViewerPeptide seqPeptide = new SequenceViewerPeptide(peptide, COLUMN_WIDTH, index+1, index+peptide.getSequenceAsString().length());
+				int index = proteinSequence.indexOf(sequence);
+				if ((index >= 0) && ((index + sequence.length()) <= proteinSequence.length())) {
+					SequenceViewerPeptide seqPeptide = new SequenceViewerPeptide(peptide, COLUMN_WIDTH, index+1, index+sequence.length());
 					peptideRepresentationsList.add(seqPeptide);
 				}
 			}
@@ -385,27 +392,26 @@ public class SequenceViewer extends BorderPane {
 			experimentIntensityMap.put(experimentName, new HashMap<>());
 		}
 		
-		// Compile experimentIntensityMap
+		// Compile experimentIntensityMap by summing up the matrix rows of the peptides at each position
+		IntensityMatrix matrix = peptideId.getExperimentIntensities();
+		List<String> experimentNames = peptideId.getSummary().getExperimentNames();
+		int[] columns = new int[experimentNames.size()];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = matrix.getColumnIndex(experimentNames.get(i));
+		}
+		long[] sums = new long[matrix.getColumnCount()];
 		long maxIntensity = 0;
 		for (Entry<Integer, List<String>> idList : peptideMap.entrySet()) {
 			// for each position
-			Map<String, Long> tmpExperimentIntensity = new HashMap<>();
-			for (String experimentName : peptideId.getSummary().getExperimentNames()) {
-				tmpExperimentIntensity.put(experimentName, (long) 0);
-			}
+			Arrays.fill(sums, 0);
 			for (String id : idList.getValue()) {
-				for (Entry<String, Long> entry : peptideId.getPeptideById(id).getExperimentIntensities().entrySet()) {
-					if (tmpExperimentIntensity.containsKey(entry.getKey())) {
-						tmpExperimentIntensity.put(entry.getKey(), entry.getValue() + tmpExperimentIntensity.get(entry.getKey()));
-					} else {
-						tmpExperimentIntensity.put(entry.getKey(), entry.getValue());
-					}
-				}
+				matrix.addRowTo(peptideId.getPeptideById(id).getOrdinal(), sums);
 			}
-			for (Entry<String, Long> experiment : tmpExperimentIntensity.entrySet()) {
-				experimentIntensityMap.get(experiment.getKey()).put(idList.getKey(), tmpExperimentIntensity.get(experiment.getKey()));
-				if (tmpExperimentIntensity.get(experiment.getKey()) > maxIntensity) {
-					maxIntensity = tmpExperimentIntensity.get(experiment.getKey());
+			for (int i = 0; i < columns.length; i++) {
+				long intensity = (columns[i] >= 0) ? sums[columns[i]] : 0;
+				experimentIntensityMap.get(experimentNames.get(i)).put(idList.getKey(), intensity);
+				if (intensity > maxIntensity) {
+					maxIntensity = intensity;
 				}
 			}
 		}
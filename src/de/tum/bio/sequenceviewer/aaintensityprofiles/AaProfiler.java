@@ -172,7 +172,7 @@ public class AaProfiler extends Profiler {
 	
 	private void reduceProfileMap() {
 		List<Integer> positionList = new ArrayList<>();
-		for (int position = 1; position <= protein.getSequenceAsString().length(); position++) {
+		for (int position = 1; position <= protein.getLength(); position++) {
 			positionList.add(position);
 			if (profileMap.containsKey(position + 1)) {
 				if (profileMap.get(position).equals(profileMap.get(position + 1))) {
@@ -240,13 +240,13 @@ public class AaProfiler extends Profiler {
 				updateMessage("Update profile chart...");
 				List<XYChart.Series<String, Double>> chartSeriesTmp = new ArrayList<>();
 				List<String> addedSeries = new ArrayList<>();
-				for (int position = 1; position <= protein.getSequenceAsString().length(); position++) {
-					updateProgress((long) position, (long) protein.getSequenceAsString().length()); 
+				for (int position = 1; position <= protein.getLength(); position++) {
+					updateProgress((long) position, (long) protein.getLength()); 
 					String keyString = getListKey(position + offset, seriesMap.keySet());
 					if (addedSeries.contains(keyString)) {
 						continue;
 					}
-					if (residues.contains(protein.getSequenceAsString().charAt(position - 1))) {
+					if (residues.contains(protein.getSequence().charAt(position - 1))) {
 						if (seriesMap.containsKey(keyString)) {
 							chartSeriesTmp.add(seriesMap.get(keyString));
 							addedSeries.add(keyString);
@@ -277,13 +277,13 @@ public class AaProfiler extends Profiler {
 				updateMessage("Update normalized profile chart...");
 				List<XYChart.Series<String, Double>> chartNormalizedSeriesTmp = new ArrayList<>();
 				List<String> addedSeries = new ArrayList<>();
-				for (int position = 1; position <= protein.getSequenceAsString().length(); position++) {
-					updateProgress((long) position, protein.getSequenceAsString().length());
+				for (int position = 1; position <= protein.getLength(); position++) {
+					updateProgress((long) position, protein.getLength());
 					String keyString = getListKey(position + offset, normalizedSeriesMap.keySet());
 					if (addedSeries.contains(keyString)) {
 						continue;
 					}
-					if (residues.contains(protein.getSequenceAsString().charAt(position - 1))) {
+					if (residues.contains(protein.getSequence().charAt(position - 1))) {
 						if (normalizedSeriesMap.containsKey(keyString)) {
 							chartNormalizedSeriesTmp.add(normalizedSeriesMap.get(keyString));
 							addedSeries.add(keyString);
@@ -364,16 +364,16 @@ public class AaProfiler extends Profiler {
 				} else {
 					correlationMap = spearmanCorrelationMap;
 				}
-				for (int position = 1; position <= protein.getSequenceAsString().length(); position++) {
-					updateProgress((long) position, (long) protein.getSequenceAsString().length()); 
-					if (residues.contains(protein.getSequenceAsString().charAt(position - 1))) {
+				for (int position = 1; position <= protein.getLength(); position++) {
+					updateProgress((long) position, (long) protein.getLength()); 
+					if (residues.contains(protein.getSequence().charAt(position - 1))) {
 						String keyString = getListKey((position + offset), correlationMap.keySet());
 						if (!addedSeries.contains(keyString)) {
 							if (correlationMap.containsKey(keyString)) {
 								XYChart.Series<Integer, Double> series = new XYChart.Series<>();
 								List<Double> correlationsList = new ArrayList<>();
 								for (Entry<String, Double> subEntry : correlationMap.get(keyString).entrySet()) {
-									if (residues.contains(protein.getSequenceAsString().charAt(position - 1))) {
+									if (residues.contains(protein.getSequence().charAt(position - 1))) {
 										if (subEntry.getValue().isNaN()) {
 											correlationsList.add(0d);
 										} else {
@@ -0,0 +1,85 @@
+package de.tum.bio.utils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Column indices of a table by header enum, resolved once per file from a map of enum constants to header names.
+ * Readers look up the index of each field once and then read rows positionally, instead of mapping header names per row.
+ *
+ * @param <K> header enum
+ */
+
+public final class ColumnMapping<K extends Enum<K>> {
+
+	private final Class<K> type;
+	// Column index and header name by ordinal, -1 and null for unmapped constants
+	private final int[] columns;
+	private final String[] headers;
+
+	private ColumnMapping(Class<K> type, int[] columns, String[] headers) {
+		this.type = type;
+		this.columns = columns;
+		this.headers = headers;
+	}
+
+	/**
+	 * Resolves the columns of a table.
+	 * @param table
+	 * @param type header enum
+	 * @param headerMap header names by enum constant, constants of other types are ignored
+	 * @return mapping
+	 */
+	public static <K extends Enum<K>> ColumnMapping<K> compile(ColumnarTable table, Class<K> type, Map<? extends Enum<?>, String> headerMap) {
+		int constants = type.getEnumConstants().length;
+		int[] columns = new int[constants];
+		String[] headers = new String[constants];
+		Arrays.fill(columns, -1);
+		for (Entry<? extends Enum<?>, String> entry : headerMap.entrySet()) {
+			if (type.isInstance(entry.getKey()) && entry.getValue() != null) {
+				int ordinal = entry.getKey().ordinal();
+				headers[ordinal] = entry.getValue();
+				columns[ordinal] = table.getColumnIndex(entry.getValue());
+			}
+		}
+		return new ColumnMapping<>(type, columns, headers);
+	}
+
+	/**
+	 * @param key
+	 * @return column index, or -1 if the column is not mapped or not in the table
+	 */
+	public int getColumn(K key) {
+		return columns[key.ordinal()];
+	}
+
+	public boolean hasColumn(K key) {
+		return columns[key.ordinal()] >= 0;
+	}
+
+	/**
+	 * @param key
+	 * @return column index
+	 * @throws IOException if the column is not mapped or not in the table
+	 */
+	public int getRequiredColumn(K key) throws IOException {
+		int column = columns[key.ordinal()];
+		if (column < 0) {
+			if (headers[key.ordinal()] == null) {
+				throw new IOException("No column mapped to " + type.getSimpleName() + "." + key.name() + ".");
+			}
+			throw new IOException("Column \"" + headers[key.ordinal()] + "\" not found.");
+		}
+		return column;
+	}
+
+	/**
+	 * @param key
+	 * @return mapped header name, or null
+	 */
+	public String getHeader(K key) {
+		return headers[key.ordinal()];
+	}
+}
@@ -0,0 +1,16 @@
+package de.tum.bio.utils;
+
+/**
+ * Storage types of the columns of a ColumnarTable.
+ * STRING columns keep one String per row, CATEGORY columns are dictionary-encoded and
+ * should be used for columns with few distinct values.
+ *
+ */
+
+public enum ColumnType {
+	INT,
+	LONG,
+	DOUBLE,
+	STRING,
+	CATEGORY;
+}
@@ -0,0 +1,795 @@
+package de.tum.bio.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * This class holds the content of a separated text file column by column.
+ * Numeric columns are stored in primitive arrays, CATEGORY columns as codes into a per-column dictionary.
+ * Empty cells are flagged and read as 0, NaN or an empty String depending on the column type.
+ *
+ */
+
+public final class ColumnarTable {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	// Dictionaries up to this size are searched by comparing the raw field instead of decoding it
+	private static final int CATEGORY_SCAN_LIMIT = 32;
+
+	private final List<String> headers;
+	private final Map<String, Integer> columnIndices = new HashMap<>();
+	private final Column[] columns;
+	private int rowCount = 0;
+
+	public ColumnarTable(List<String> headers, List<ColumnType> columnTypes) {
+		if (headers.size() != columnTypes.size()) {
+			throw new IllegalArgumentException("Number of headers and column types differ.");
+		}
+		this.headers = new ArrayList<>(headers);
+		columns = new Column[headers.size()];
+		for (int i = 0; i < columns.length; i++) {
+			columnIndices.put(headers.get(i), i);
+			columns[i] = createColumn(columnTypes.get(i));
+		}
+	}
+
+	/**
+	 * Gets the column index of a header.
+	 * @param header
+	 * @return index or -1 if the header is not part of the table
+	 */
+	public int getColumnIndex(String header) {
+		Integer index = columnIndices.get(header);
+		if (index == null) {
+			return -1;
+		}
+		return index;
+	}
+
+	public boolean hasColumn(String header) {
+		return columnIndices.containsKey(header);
+	}
+
+	public List<String> getHeaders() {
+		return Collections.unmodifiableList(headers);
+	}
+
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	public ColumnType getColumnType(int column) {
+		return columns[column].getType();
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public boolean isEmpty(int column, int row) {
+		return columns[column].empty.get(row);
+	}
+
+	public int getInt(int column, int row) {
+		return columns[column].getInt(row);
+	}
+
+	public long getLong(int column, int row) {
+		return columns[column].getLong(row);
+	}
+
+	public double getDouble(int column, int row) {
+		return columns[column].getDouble(row);
+	}
+
+	public String getString(int column, int row) {
+		return columns[column].getString(row);
+	}
+
+	/**
+	 * Gets the dictionary code of a CATEGORY cell.
+	 * @param column
+	 * @param row
+	 * @return code
+	 */
+	public int getCode(int column, int row) {
+		return asCategory(column).codes[row];
+	}
+
+	/**
+	 * Gets the distinct values of a CATEGORY column in order of their codes.
+	 * @param column
+	 * @return list of values
+	 */
+	public List<String> getCategories(int column) {
+		return Collections.unmodifiableList(asCategory(column).dictionary);
+	}
+
+	/**
+	 * Appends a row given as text, e.g. to build a table that is not read from a file.
+	 * @param values one value per column, empty for an empty cell
+	 */
+	public void appendRow(String... values) {
+		if (values.length != columns.length) {
+			throw new IllegalArgumentException("Expected " + columns.length + " values, got " + values.length + ".");
+		}
+		for (int i = 0; i < columns.length; i++) {
+			columns[i].append(rowCount, values[i]);
+		}
+		rowCount++;
+	}
+
+	/**
+	 * Appends a field of a parser to a column. Rows are completed by endRow().
+	 * Numeric columns parse the field without creating a String.
+	 * @param column
+	 * @param source
+	 * @param slot
+	 */
+	void append(int column, FieldSource source, int slot) {
+		columns[column].append(rowCount, source, slot);
+	}
+
+	/**
+	 * Completes the current row. Columns without a value are treated as empty.
+	 */
+	void endRow() {
+		rowCount++;
+		for (Column column : columns) {
+			if (column.size < rowCount) {
+				column.append(rowCount - 1, "");
+			}
+		}
+	}
+
+	/**
+	 * Removes all rows but keeps the capacity of the columns and the dictionaries of CATEGORY columns,
+	 * so a table can be reused for the next batch of a file and codes stay valid across batches.
+	 * Numeric values are reset to 0, which empty cells are read as.
+	 */
+	void clearRows() {
+		for (Column column : columns) {
+			column.clear();
+		}
+		rowCount = 0;
+	}
+
+	/**
+	 * Creates an empty table with the same headers and column types.
+	 * @return new table
+	 */
+	ColumnarTable emptyCopy() {
+		List<ColumnType> columnTypes = new ArrayList<>(columns.length);
+		for (Column column : columns) {
+			columnTypes.add(column.getType());
+		}
+		return new ColumnarTable(headers, columnTypes);
+	}
+
+	/**
+	 * Appends all rows of a table with the same headers and column types to the end of this table.
+	 * @param other
+	 */
+	void appendTable(ColumnarTable other) {
+		if (!headers.equals(other.headers)) {
+			throw new IllegalArgumentException("Headers of the tables differ.");
+		}
+		for (int i = 0; i < columns.length; i++) {
+			columns[i].appendColumn(other.columns[i], rowCount, other.rowCount);
+		}
+		rowCount += other.rowCount;
+	}
+
+	/**
+	 * Writes headers, column types and content of the table in binary form.
+	 * @param output
+	 * @throws IOException
+	 */
+	void write(DataOutputStream output) throws IOException {
+		output.writeInt(columns.length);
+		for (int i = 0; i < columns.length; i++) {
+			writeString(output, headers.get(i));
+			output.writeUTF(columns[i].getType().name());
+		}
+		output.writeInt(rowCount);
+		for (Column column : columns) {
+			long[] emptyBits = column.empty.toLongArray();
+			output.writeInt(emptyBits.length);
+			for (long bits : emptyBits) {
+				output.writeLong(bits);
+			}
+			column.write(output, rowCount);
+		}
+	}
+
+	/**
+	 * Reads a table written by write(). Every count is checked against the remaining bytes before anything is allocated,
+	 * so a corrupt input fails with an IOException instead of an OutOfMemoryError.
+	 * @param input
+	 * @param remainingBytes number of bytes left in the input
+	 * @return table
+	 * @throws IOException
+	 */
+	static ColumnarTable read(DataInputStream input, LongSupplier remainingBytes) throws IOException {
+		// Each column has at least the length of its header and its type
+		int columnCount = readCount(input, remainingBytes, 6);
+		List<String> headers = new ArrayList<>(columnCount);
+		List<ColumnType> columnTypes = new ArrayList<>(columnCount);
+		for (int i = 0; i < columnCount; i++) {
+			headers.add(readString(input, remainingBytes));
+			columnTypes.add(ColumnType.valueOf(input.readUTF()));
+		}
+		ColumnarTable table = new ColumnarTable(headers, columnTypes);
+		table.rowCount = readCount(input, remainingBytes, 0);
+		for (Column column : table.columns) {
+			long[] emptyBits = new long[readCount(input, remainingBytes, Long.BYTES)];
+			for (int i = 0; i < emptyBits.length; i++) {
+				emptyBits[i] = input.readLong();
+			}
+			column.empty.or(BitSet.valueOf(emptyBits));
+			column.read(input, table.rowCount, remainingBytes);
+			column.size = table.rowCount;
+		}
+		return table;
+	}
+
+	/**
+	 * @param input
+	 * @param remainingBytes
+	 * @param elementBytes minimum number of bytes of each counted element
+	 * @return count
+	 * @throws IOException if the count is negative or its elements do not fit into the remaining bytes
+	 */
+	private static int readCount(DataInputStream input, LongSupplier remainingBytes, int elementBytes) throws IOException {
+		int count = input.readInt();
+		checkCount(count, remainingBytes, elementBytes);
+		return count;
+	}
+
+	private static void checkCount(int count, LongSupplier remainingBytes, int elementBytes) throws IOException {
+		long remaining = remainingBytes.getAsLong();
+		if (count < 0 || (long) count * elementBytes > remaining) {
+			throw new IOException("Invalid count " + count + " with " + remaining + " bytes left");
+		}
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static String readString(DataInputStream input, LongSupplier remainingBytes) throws IOException {
+		byte[] bytes = new byte[readCount(input, remainingBytes, 1)];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Releases unused capacity after the table has been filled.
+	 */
+	void trimToSize() {
+		for (Column column : columns) {
+			column.trimToSize();
+		}
+	}
+
+	private CategoryColumn asCategory(int column) {
+		if (!(columns[column] instanceof CategoryColumn)) {
+			throw new IllegalStateException("Column " + headers.get(column) + " is not of type " + ColumnType.CATEGORY + ".");
+		}
+		return (CategoryColumn) columns[column];
+	}
+
+	private static Column createColumn(ColumnType type) {
+		switch (type) {
+			case INT:
+				return new IntColumn();
+			case LONG:
+				return new LongColumn();
+			case DOUBLE:
+				return new DoubleColumn();
+			case CATEGORY:
+				return new CategoryColumn();
+			case STRING:
+			default:
+				return new StringColumn();
+		}
+	}
+
+	private static int grow(int capacity, int minCapacity) {
+		return Math.max(capacity + (capacity >> 1), minCapacity);
+	}
+
+	private static abstract class Column {
+		protected final BitSet empty = new BitSet();
+		protected int size = 0;
+
+		abstract ColumnType getType();
+
+		abstract void append(int row, String value);
+
+		void append(int row, FieldSource source, int slot) {
+			append(row, source.isEmpty(slot) ? "" : source.getString(slot));
+		}
+
+		abstract void appendColumn(Column other, int offset, int rows);
+
+		protected void appendEmpty(Column other, int offset) {
+			for (int row = other.empty.nextSetBit(0); row >= 0; row = other.empty.nextSetBit(row + 1)) {
+				empty.set(offset + row);
+			}
+			size = offset + other.size;
+		}
+
+		abstract void trimToSize();
+
+		void clear() {
+			empty.clear();
+			size = 0;
+		}
+
+		abstract void write(DataOutputStream output, int rows) throws IOException;
+
+		abstract void read(DataInputStream input, int rows, LongSupplier remainingBytes) throws IOException;
+
+		int getInt(int row) {
+			throw new IllegalStateException("Column of type " + getType() + " cannot be read as int.");
+		}
+
+		long getLong(int row) {
+			throw new IllegalStateException("Column of type " + getType() + " cannot be read as long.");
+		}
+
+		double getDouble(int row) {
+			throw new IllegalStateException("Column of type " + getType() + " cannot be read as double.");
+		}
+
+		abstract String getString(int row);
+	}
+
+	private static final class IntColumn extends Column {
+		private int[] values = new int[INITIAL_CAPACITY];
+
+		@Override
+		ColumnType getType() {
+			return ColumnType.INT;
+		}
+
+		@Override
+		void append(int row, String value) {
+			if (row >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row + 1));
+			}
+			if (value.isEmpty()) {
+				empty.set(row);
+			} else {
+				values[row] = Integer.parseInt(value);
+			}
+			size = row + 1;
+		}
+
+		@Override
+		void append(int row, FieldSource source, int slot) {
+			if (row >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row + 1));
+			}
+			if (source.isEmpty(slot)) {
+				empty.set(row);
+			} else {
+				values[row] = source.getInt(slot);
+			}
+			size = row + 1;
+		}
+
+		@Override
+		void appendColumn(Column other, int offset, int rows) {
+			if (offset + rows > values.length) {
+				values = Arrays.copyOf(values, grow(values.length, offset + rows));
+			}
+			System.arraycopy(((IntColumn) other).values, 0, values, offset, rows);
+			appendEmpty(other, offset);
+		}
+
+		@Override
+		void write(DataOutputStream output, int rows) throws IOException {
+			for (int row = 0; row < rows; row++) {
+				output.writeInt(values[row]);
+			}
+		}
+
+		@Override
+		void read(DataInputStream input, int rows, LongSupplier remainingBytes) throws IOException {
+			checkCount(rows, remainingBytes, Integer.BYTES);
+			values = new int[rows];
+			for (int row = 0; row < rows; row++) {
+				values[row] = input.readInt();
+			}
+		}
+
+		@Override
+		void clear() {
+			Arrays.fill(values, 0, size, 0);
+			super.clear();
+		}
+
+		@Override
+		void trimToSize() {
+			values = Arrays.copyOf(values, size);
+		}
+
+		@Override
+		int getInt(int row) {
+			return values[row];
+		}
+
+		@Override
+		long getLong(int row) {
+			return values[row];
+		}
+
+		@Override
+		double getDouble(int row) {
+			return empty.get(row) ? Double.NaN : values[row];
+		}
+
+		@Override
+		String getString(int row) {
+			return empty.get(row) ? "" : String.valueOf(values[row]);
+		}
+	}
+
+	private static final class LongColumn extends Column {
+		private long[] values = new long[INITIAL_CAPACITY];
+
+		@Override
+		ColumnType getType() {
+			return ColumnType.LONG;
+		}
+
+		@Override
+		void append(int row, String value) {
+			if (row >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row + 1));
+			}
+			if (value.isEmpty()) {
+				empty.set(row);
+			} else {
+				values[row] = Long.parseLong(value);
+			}
+			size = row + 1;
+		}
+
+		@Override
+		void append(int row, FieldSource source, int slot) {
+			if (row >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row + 1));
+			}
+			if (source.isEmpty(slot)) {
+				empty.set(row);
+			} else {
+				values[row] = source.getLong(slot);
+			}
+			size = row + 1;
+		}
+
+		@Override
+		void appendColumn(Column other, int offset, int rows) {
+			if (offset + rows > values.length) {
+				values = Arrays.copyOf(values, grow(values.length, offset + rows));
+			}
+			System.arraycopy(((LongColumn) other).values, 0, values, offset, rows);
+			appendEmpty(other, offset);
+		}
+
+		@Override
+		void write(DataOutputStream output, int rows) throws IOException {
+			for (int row = 0; row < rows; row++) {
+				output.writeLong(values[row]);
+			}
+		}
+
+		@Override
+		void read(DataInputStream input, int rows, LongSupplier remainingBytes) throws IOException {
+			checkCount(rows, remainingBytes, Long.BYTES);
+			values = new long[rows];
+			for (int row = 0; row < rows; row++) {
+				values[row] = input.readLong();
+			}
+		}
+
+		@Override
+		void clear() {
+			Arrays.fill(values, 0, size, 0L);
+			super.clear();
+		}
+
+		@Override
+		void trimToSize() {
+			values = Arrays.copyOf(values, size);
+		}
+
+		@Override
+		long getLong(int row) {
+			return values[row];
+		}
+
+		@Override
+		double getDouble(int row) {
+			return empty.get(row) ? Double.NaN : values[row];
+		}
+
+		@Override
+		String getString(int row) {
+			return empty.get(row) ? "" : String.valueOf(values[row]);
+		}
+	}
+
+	private static final class DoubleColumn extends Column {
+		private double[] values = new double[INITIAL_CAPACITY];
+
+		@Override
+		ColumnType getType() {
+			return ColumnType.DOUBLE;
+		}
+
+		@Override
+		void append(int row, String value) {
+			if (row >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row + 1));
+			}
+			if (value.isEmpty()) {
+				empty.set(row);
+				values[row] = Double.NaN;
+			} else {
+				values[row] = Double.parseDouble(value);
+			}
+			size = row + 1;
+		}
+
+		@Override
+		void append(int row, FieldSource source, int slot) {
+			if (row >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row + 1));
+			}
+			if (source.isEmpty(slot)) {
+				empty.set(row);
+				values[row] = Double.NaN;
+			} else {
+				values[row] = source.getDouble(slot);
+			}
+			size = row + 1;
+		}
+
+		@Override
+		void appendColumn(Column other, int offset, int rows) {
+			if (offset + rows > values.length) {
+				values = Arrays.copyOf(values, grow(values.length, offset + rows));
+			}
+			System.arraycopy(((DoubleColumn) other).values, 0, values, offset, rows);
+			appendEmpty(other, offset);
+		}
+
+		@Override
+		void write(DataOutputStream output, int rows) throws IOException {
+			for (int row = 0; row < rows; row++) {
+				output.writeDouble(values[row]);
+			}
+		}
+
+		@Override
+		void read(DataInputStream input, int rows, LongSupplier remainingBytes) throws IOException {
+			checkCount(rows, remainingBytes, Double.BYTES);
+			values = new double[rows];
+			for (int row = 0; row < rows; row++) {
+				values[row] = input.readDouble();
+			}
+		}
+
+		@Override
+		void clear() {
+			Arrays.fill(values, 0, size, 0.0);
+			super.clear();
+		}
+
+		@Override
+		void trimToSize() {
+			values = Arrays.copyOf(values, size);
+		}
+
+		@Override
+		double getDouble(int row) {
+			return values[row];
+		}
+
+		@Override
+		String getString(int row) {
+			return empty.get(row) ? "" : String.valueOf(values[row]);
+		}
+	}
+
+	private static final class StringColumn extends Column {
+		private String[] values = new String[INITIAL_CAPACITY];
+
+		@Override
+		ColumnType getType() {
+			return ColumnType.STRING;
+		}
+
+		@Override
+		void append(int row, String value) {
+			if (row >= values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row + 1));
+			}
+			if (value.isEmpty()) {
+				empty.set(row);
+				values[row] = "";
+			} else {
+				values[row] = value;
+			}
+			size = row + 1;
+		}
+
+		@Override
+		void appendColumn(Column other, int offset, int rows) {
+			if (offset + rows > values.length) {
+				values = Arrays.copyOf(values, grow(values.length, offset + rows));
+			}
+			System.arraycopy(((StringColumn) other).values, 0, values, offset, rows);
+			appendEmpty(other, offset);
+		}
+
+		@Override
+		void clear() {
+			Arrays.fill(values, 0, size, null);
+			super.clear();
+		}
+
+		@Override
+		void write(DataOutputStream output, int rows) throws IOException {
+			for (int row = 0; row < rows; row++) {
+				writeString(output, values[row]);
+			}
+		}
+
+		@Override
+		void read(DataInputStream input, int rows, LongSupplier remainingBytes) throws IOException {
+			// Each value has at least its length
+			checkCount(rows, remainingBytes, Integer.BYTES);
+			values = new String[rows];
+			for (int row = 0; row < rows; row++) {
+				values[row] = readString(input, remainingBytes);
+			}
+		}
+
+		@Override
+		void trimToSize() {
+			values = Arrays.copyOf(values, size);
+		}
+
+		@Override
+		String getString(int row) {
+			return values[row];
+		}
+	}
+
+	private static final class CategoryColumn extends Column {
+		private int[] codes = new int[INITIAL_CAPACITY];
+		private final List<String> dictionary = new ArrayList<>();
+		private final Map<String, Integer> dictionaryIndices = new HashMap<>();
+
+		@Override
+		ColumnType getType() {
+			return ColumnType.CATEGORY;
+		}
+
+		@Override
+		void append(int row, String value) {
+			if (row >= codes.length) {
+				codes = Arrays.copyOf(codes, grow(codes.length, row + 1));
+			}
+			if (value.isEmpty()) {
+				empty.set(row);
+			}
+			Integer code = dictionaryIndices.get(value);
+			if (code == null) {
+				code = dictionary.size();
+				dictionary.add(value);
+				dictionaryIndices.put(value, code);
+			}
+			codes[row] = code;
+			size = row + 1;
+		}
+
+		@Override
+		void append(int row, FieldSource source, int slot) {
+			if (!source.isEmpty(slot) && dictionary.size() <= CATEGORY_SCAN_LIMIT) {
+				for (int code = 0; code < dictionary.size(); code++) {
+					if (source.fieldEquals(slot, dictionary.get(code))) {
+						if (row >= codes.length) {
+							codes = Arrays.copyOf(codes, grow(codes.length, row + 1));
+						}
+						codes[row] = code;
+						size = row + 1;
+						return;
+					}
+				}
+			}
+			super.append(row, source, slot);
+		}
+
+		@Override
+		void appendColumn(Column other, int offset, int rows) {
+			if (offset + rows > codes.length) {
+				codes = Arrays.copyOf(codes, grow(codes.length, offset + rows));
+			}
+			CategoryColumn otherCategory = (CategoryColumn) other;
+			// Translate the codes of the other dictionary into codes of this one
+			int[] recode = new int[otherCategory.dictionary.size()];
+			for (int code = 0; code < recode.length; code++) {
+				String value = otherCategory.dictionary.get(code);
+				Integer ownCode = dictionaryIndices.get(value);
+				if (ownCode == null) {
+					ownCode = dictionary.size();
+					dictionary.add(value);
+					dictionaryIndices.put(value, ownCode);
+				}
+				recode[code] = ownCode;
+			}
+			for (int row = 0; row < rows; row++) {
+				codes[offset + row] = recode[otherCategory.codes[row]];
+			}
+			appendEmpty(other, offset);
+		}
+
+		@Override
+		void write(DataOutputStream output, int rows) throws IOException {
+			output.writeInt(dictionary.size());
+			for (String value : dictionary) {
+				writeString(output, value);
+			}
+			for (int row = 0; row < rows; row++) {
+				output.writeInt(codes[row]);
+			}
+		}
+
+		@Override
+		void read(DataInputStream input, int rows, LongSupplier remainingBytes) throws IOException {
+			int dictionarySize = readCount(input, remainingBytes, Integer.BYTES);
+			for (int code = 0; code < dictionarySize; code++) {
+				String value = readString(input, remainingBytes);
+				dictionary.add(value);
+				dictionaryIndices.put(value, code);
+			}
+			checkCount(rows, remainingBytes, Integer.BYTES);
+			codes = new int[rows];
+			for (int row = 0; row < rows; row++) {
+				int code = input.readInt();
+				if (code < 0 || code >= dictionarySize) {
+					throw new IOException("Invalid category code " + code + " with " + dictionarySize + " categories");
+				}
+				codes[row] = code;
+			}
+		}
+
+		@Override
+		void trimToSize() {
+			codes = Arrays.copyOf(codes, size);
+		}
+
+		@Override
+		String getString(int row) {
+			return dictionary.get(codes[row]);
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package de.tum.bio.utils;
+
+/**
+ * Gives access to the projected fields of the current row of a parser.
+ * Numbers are parsed from the underlying buffer without creating Strings.
+ *
+ */
+
+interface FieldSource {
+
+	boolean isEmpty(int slot);
+
+	String getString(int slot);
+
+	boolean fieldEquals(int slot, String value);
+
+	int getInt(int slot);
+
+	long getLong(int slot);
+
+	double getDouble(int slot);
+}
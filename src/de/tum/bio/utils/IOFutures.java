@@ -0,0 +1,64 @@
+package de.tum.bio.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs reading steps that throw IOExceptions as CompletableFutures and waits for them with the original exception.
+ *
+ */
+
+public final class IOFutures {
+
+	private IOFutures() {
+		// empty
+	}
+
+	/**
+	 * Runs a step on an executor. An IOException completes the future exceptionally with an UncheckedIOException.
+	 * @param supplier
+	 * @param executor
+	 * @return future of the result
+	 */
+	public static <T> CompletableFuture<T> supplyAsync(IOSupplier<T> supplier, Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return supplier.get();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Waits for a future and rethrows the original exception of a failed step.
+	 * @param future
+	 * @return result
+	 * @throws IOException
+	 */
+	public static <T> T await(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			} else if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	@FunctionalInterface
+	public interface IOSupplier<T> {
+		T get() throws IOException;
+	}
+}
@@ -0,0 +1,93 @@
+package de.tum.bio.utils;
+
+import java.util.Arrays;
+
+/**
+ * Byte offsets of the lines of a file grouped by an integer key column, e.g. the evidence lines of each peptide ID.
+ * Offsets are stored in two flat arrays sorted by key, so the index takes 8 bytes per line and 4 bytes per key
+ * and the lines of a key can be read later without parsing the rest of the file.
+ *
+ */
+
+public final class LineIndex {
+
+	// Offsets of key k are offsets[firstLine[k]] to offsets[firstLine[k + 1] - 1]
+	private final int[] firstLine;
+	private final long[] offsets;
+
+	private LineIndex(int[] firstLine, long[] offsets) {
+		this.firstLine = firstLine;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Groups lines by key.
+	 * @param keys non-negative key of each line
+	 * @param lineOffsets offset of each line
+	 * @param lineCount number of valid entries in both arrays
+	 * @return index
+	 */
+	static LineIndex create(int[] keys, long[] lineOffsets, int lineCount) {
+		int maxKey = -1;
+		for (int line = 0; line < lineCount; line++) {
+			maxKey = Math.max(maxKey, keys[line]);
+		}
+		// Counting sort keeps the file order within each key
+		int[] firstLine = new int[maxKey + 2];
+		for (int line = 0; line < lineCount; line++) {
+			firstLine[keys[line] + 1]++;
+		}
+		for (int key = 0; key <= maxKey; key++) {
+			firstLine[key + 1] += firstLine[key];
+		}
+		int[] next = Arrays.copyOf(firstLine, maxKey + 1);
+		long[] offsets = new long[lineCount];
+		for (int line = 0; line < lineCount; line++) {
+			offsets[next[keys[line]]++] = lineOffsets[line];
+		}
+		return new LineIndex(firstLine, offsets);
+	}
+
+	/**
+	 * Gets the offsets of the lines of a key in file order.
+	 * @param key
+	 * @return offsets, empty if the key has no lines
+	 */
+	public long[] getOffsets(int key) {
+		if (key < 0 || key >= firstLine.length - 1) {
+			return new long[0];
+		}
+		return Arrays.copyOfRange(offsets, firstLine[key], firstLine[key + 1]);
+	}
+
+	/**
+	 * Gets the number of lines of a key.
+	 * @param key
+	 * @return number of lines, 0 if the key has no lines
+	 */
+	public int getLineCount(int key) {
+		if (key < 0 || key >= firstLine.length - 1) {
+			return 0;
+		}
+		return firstLine[key + 1] - firstLine[key];
+	}
+
+	/**
+	 * Copies the offsets of the lines of a key in file order, e.g. to collect the lines of several keys in one array.
+	 * @param key
+	 * @param destination has to hold getLineCount(key) more offsets after position
+	 * @param position
+	 * @return position after the copied offsets
+	 */
+	public int copyOffsets(int key, long[] destination, int position) {
+		int lineCount = getLineCount(key);
+		if (lineCount > 0) {
+			System.arraycopy(offsets, firstLine[key], destination, position, lineCount);
+		}
+		return position + lineCount;
+	}
+
+	public int getLineCount() {
+		return offsets.length;
+	}
+}
@@ -0,0 +1,430 @@
+package de.tum.bio.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class tokenizes separated text files directly on a memory-mapped byte buffer.
+ * Only the boundaries of projected columns are recorded and their content is decoded lazily on request.
+ * Files larger than the mapping window are mapped piece by piece, so lines never have to be copied into Strings.
+ * A tokenizer can be restricted to a line-aligned byte range to parse parts of a file concurrently.
+ *
+ */
+
+public final class MappedTsvTokenizer implements Closeable, FieldSource {
+
+	private static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+	private static final byte NEWLINE = '\n';
+	private static final byte CARRIAGE_RETURN = '\r';
+
+	private final FileChannel channel;
+	private final byte separator;
+	private final long fileSize;
+	private final long end;
+
+	private long windowSize = DEFAULT_WINDOW_SIZE;
+	private long windowStart;
+	private int windowLimit = 0;
+	private MappedByteBuffer buffer;
+	private int position = 0;
+	private long rowStart = -1;
+	private boolean emptyLine;
+
+	private int[] slotByColumn = new int[0];
+	private int lastColumn = -1;
+	private int[] fieldStarts = new int[0];
+	private int[] fieldEnds = new int[0];
+	private String[] fieldValues = new String[0];
+	private byte[] scratch = new byte[256];
+
+	public MappedTsvTokenizer(Path path, byte separator) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.separator = separator;
+		this.fileSize = channel.size();
+		this.end = fileSize;
+		this.windowStart = 0;
+	}
+
+	/**
+	 * Creates a tokenizer for the lines starting within a byte range of the file.
+	 * @param path
+	 * @param separator
+	 * @param start offset of the first line, has to be the start of a line
+	 * @param end offset after the last line, has to be the start of a line or the file size
+	 * @throws IOException
+	 */
+	public MappedTsvTokenizer(Path path, byte separator, long start, long end) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.separator = separator;
+		this.fileSize = channel.size();
+		this.end = Math.min(end, fileSize);
+		this.windowStart = start;
+	}
+
+	/**
+	 * Finds the start of the first line at or after an offset.
+	 * @param offset
+	 * @return offset of the line start or the file size if no further line starts
+	 * @throws IOException
+	 */
+	public long findLineStart(long offset) throws IOException {
+		if (offset <= 0) {
+			return 0;
+		}
+		ByteBuffer probe = ByteBuffer.allocate(64 * 1024);
+		// The line starts after the first newline at or after offset - 1
+		long probeStart = offset - 1;
+		while (probeStart < fileSize) {
+			probe.clear();
+			int read = channel.read(probe, probeStart);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (probe.get(i) == NEWLINE) {
+					return probeStart + i + 1;
+				}
+			}
+			probeStart += read;
+		}
+		return fileSize;
+	}
+
+	/**
+	 * Reads all fields of the first line of the file.
+	 * @return array of header entries or an empty array if the file is empty
+	 * @throws IOException
+	 */
+	public String[] readHeader() throws IOException {
+		if (windowStart + position != 0) {
+			throw new IllegalStateException("Header has to be read before any row.");
+		}
+		if (fileSize == 0) {
+			return new String[0];
+		}
+		int lineEnd;
+		while ((lineEnd = findNewline(position)) < 0 && !windowReachesEndOfFile()) {
+			map(windowStart + position, true);
+		}
+		if (lineEnd < 0) {
+			lineEnd = windowLimit;
+		}
+		int contentEnd = trimCarriageReturn(position, lineEnd);
+		List<String> headers = new ArrayList<>();
+		int fieldStart = position;
+		for (int i = position; i < contentEnd; i++) {
+			if (buffer.get(i) == separator) {
+				headers.add(decode(fieldStart, i));
+				fieldStart = i + 1;
+			}
+		}
+		headers.add(decode(fieldStart, contentEnd));
+		position = Math.min(lineEnd + 1, windowLimit);
+		return headers.toArray(new String[headers.size()]);
+	}
+
+	/**
+	 * Sets the file columns that are tokenized. The position of a column in the array is its slot for the getters.
+	 * @param columns file column indices
+	 */
+	public void setProjection(int[] columns) {
+		lastColumn = -1;
+		for (int column : columns) {
+			lastColumn = Math.max(lastColumn, column);
+		}
+		slotByColumn = new int[lastColumn + 1];
+		Arrays.fill(slotByColumn, -1);
+		for (int slot = 0; slot < columns.length; slot++) {
+			slotByColumn[columns[slot]] = slot;
+		}
+		fieldStarts = new int[columns.length];
+		fieldEnds = new int[columns.length];
+		fieldValues = new String[columns.length];
+	}
+
+	/**
+	 * Advances to the next non-empty line.
+	 * @return false if there are no more lines
+	 * @throws IOException
+	 */
+	public boolean nextRow() throws IOException {
+		while (true) {
+			if (windowStart + position >= end) {
+				return false;
+			}
+			if (buffer == null || position >= windowLimit) {
+				map(windowStart + position, false);
+			}
+			rowStart = windowStart + position;
+			int nextLineStart = tokenizeLine(position);
+			if (nextLineStart < 0) {
+				// Line is not complete within the current window
+				map(windowStart + position, position == 0);
+				continue;
+			}
+			position = nextLineStart;
+			if (!emptyLine) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Checks if a projected field of the current row is empty or missing.
+	 * @param slot
+	 * @return true if empty
+	 */
+	@Override
+	public boolean isEmpty(int slot) {
+		return fieldStarts[slot] < 0 || fieldEnds[slot] == fieldStarts[slot];
+	}
+
+	/**
+	 * Gets the content of a projected field of the current row. The String is created on the first request only.
+	 * @param slot
+	 * @return field content
+	 */
+	@Override
+	public String getString(int slot) {
+		if (fieldValues[slot] == null) {
+			if (fieldStarts[slot] < 0) {
+				fieldValues[slot] = "";
+			} else {
+				fieldValues[slot] = decode(fieldStarts[slot], fieldEnds[slot]);
+			}
+		}
+		return fieldValues[slot];
+	}
+
+	/**
+	 * Compares a projected field of the current row with a value. ASCII values are compared without decoding the field.
+	 * @param slot
+	 * @param value
+	 * @return true if the field equals the value
+	 */
+	@Override
+	public boolean fieldEquals(int slot, String value) {
+		int start = fieldStarts[slot];
+		if (start < 0) {
+			return value.isEmpty();
+		}
+		if (!isAscii(value)) {
+			return getString(slot).equals(value);
+		}
+		if (fieldEnds[slot] - start != value.length()) {
+			return false;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (buffer.get(start + i) != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parses a projected field of the current row as int.
+	 * @param slot
+	 * @return value or 0 if the field is empty
+	 */
+	@Override
+	public int getInt(int slot) {
+		if (isEmpty(slot)) {
+			return 0;
+		}
+		return NumberParser.parseInt(buffer, fieldStarts[slot], fieldEnds[slot]);
+	}
+
+	/**
+	 * Parses a projected field of the current row as long.
+	 * @param slot
+	 * @return value or 0 if the field is empty
+	 */
+	@Override
+	public long getLong(int slot) {
+		if (isEmpty(slot)) {
+			return 0;
+		}
+		return NumberParser.parseLong(buffer, fieldStarts[slot], fieldEnds[slot]);
+	}
+
+	/**
+	 * Parses a projected field of the current row as double.
+	 * @param slot
+	 * @return value or NaN if the field is empty
+	 */
+	@Override
+	public double getDouble(int slot) {
+		if (isEmpty(slot)) {
+			return Double.NaN;
+		}
+		return NumberParser.parseDouble(buffer, fieldStarts[slot], fieldEnds[slot]);
+	}
+
+	/**
+	 * Moves to a line anywhere in the file. The current window is reused if it contains the line.
+	 * The header has to be read before, the next call of nextRow() reads the line at the offset.
+	 * @param offset start of a line, e.g. from getRowStart()
+	 */
+	public void seek(long offset) {
+		if (buffer != null && offset >= windowStart && offset < windowStart + windowLimit) {
+			position = (int) (offset - windowStart);
+		} else {
+			buffer = null;
+			windowStart = offset;
+			position = 0;
+		}
+	}
+
+	/**
+	 * Gets the file offset of the current row.
+	 * @return offset in bytes or -1 before the first row
+	 */
+	public long getRowStart() {
+		return rowStart;
+	}
+
+	/**
+	 * Gets the file offset of the next line.
+	 * @return offset in bytes
+	 */
+	public long getPosition() {
+		return windowStart + position;
+	}
+
+	public long getSize() {
+		return fileSize;
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer = null;
+		channel.close();
+	}
+
+	/**
+	 * Records the field boundaries of the line starting at lineStart.
+	 * @param lineStart
+	 * @return start of the next line or -1 if the line exceeds the window
+	 */
+	private int tokenizeLine(int lineStart) {
+		Arrays.fill(fieldStarts, -1);
+		Arrays.fill(fieldValues, null);
+		emptyLine = false;
+		int column = 0;
+		int fieldStart = lineStart;
+		int i = lineStart;
+		// Record fields up to the last projected column
+		while (i < windowLimit) {
+			byte b = buffer.get(i);
+			if (b == NEWLINE) {
+				int contentEnd = trimCarriageReturn(lineStart, i);
+				recordField(column, fieldStart, Math.max(fieldStart, contentEnd));
+				emptyLine = contentEnd == lineStart;
+				return i + 1;
+			}
+			if (b == separator) {
+				recordField(column, fieldStart, i);
+				column++;
+				fieldStart = i + 1;
+				if (column > lastColumn) {
+					i++;
+					break;
+				}
+			}
+			i++;
+		}
+		if (column <= lastColumn) {
+			// Reached the window limit inside a wanted field
+			if (!windowReachesEndOfFile()) {
+				return -1;
+			}
+			int contentEnd = trimCarriageReturn(lineStart, windowLimit);
+			recordField(column, fieldStart, Math.max(fieldStart, contentEnd));
+			emptyLine = contentEnd == lineStart;
+			return windowLimit;
+		}
+		// Skip the remaining fields
+		int lineEnd = findNewline(i);
+		if (lineEnd < 0) {
+			return windowReachesEndOfFile() ? windowLimit : -1;
+		}
+		return lineEnd + 1;
+	}
+
+	private void recordField(int column, int start, int end) {
+		if (column <= lastColumn) {
+			int slot = slotByColumn[column];
+			if (slot >= 0) {
+				fieldStarts[slot] = start;
+				fieldEnds[slot] = end;
+			}
+		}
+	}
+
+	private int findNewline(int from) {
+		for (int i = from; i < windowLimit; i++) {
+			if (buffer.get(i) == NEWLINE) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int trimCarriageReturn(int lineStart, int lineEnd) {
+		if (lineEnd > lineStart && buffer.get(lineEnd - 1) == CARRIAGE_RETURN) {
+			return lineEnd - 1;
+		}
+		return lineEnd;
+	}
+
+	private boolean windowReachesEndOfFile() {
+		return windowStart + windowLimit >= fileSize;
+	}
+
+	/**
+	 * Maps a new window starting at the given file offset.
+	 * @param offset
+	 * @param grow true if the previous window was too small for a single line
+	 * @throws IOException
+	 */
+	private void map(long offset, boolean grow) throws IOException {
+		if (grow && buffer != null) {
+			windowSize = Math.min(windowSize * 2, Integer.MAX_VALUE);
+		}
+		long size = Math.min(windowSize, fileSize - offset);
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+		windowStart = offset;
+		windowLimit = (int) size;
+		position = 0;
+	}
+
+	private static boolean isAscii(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String decode(int start, int end) {
+		int length = end - start;
+		if (length > scratch.length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		for (int i = 0; i < length; i++) {
+			scratch[i] = buffer.get(start + i);
+		}
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,205 @@
+package de.tum.bio.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses numbers directly from byte or char ranges without creating intermediate Strings.
+ * Doubles whose significant digits fit into 53 bits and whose decimal exponent is small are parsed
+ * exactly by a single multiplication or division with an exact power of ten. All other input,
+ * including malformed numbers, is passed on to the parsers of the JDK, so results and exceptions are the same.
+ *
+ */
+
+public final class NumberParser {
+
+	private static final int MAX_LONG_DIGITS = 18;
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+			1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+			1e21, 1e22
+		};
+
+	private NumberParser() {
+		// static use only
+	}
+
+	public static int parseInt(ByteBuffer buffer, int start, int end) {
+		long value = parseLong(buffer, start, end);
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			return Integer.parseInt(toString(buffer, start, end));
+		}
+		return (int) value;
+	}
+
+	public static int parseInt(CharSequence chars, int start, int end) {
+		long value = parseLong(chars, start, end);
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			return Integer.parseInt(chars.subSequence(start, end).toString());
+		}
+		return (int) value;
+	}
+
+	public static long parseLong(ByteBuffer buffer, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+			negative = buffer.get(i) == '-';
+			i++;
+		}
+		if (i == end || end - i > MAX_LONG_DIGITS) {
+			return Long.parseLong(toString(buffer, start, end));
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return Long.parseLong(toString(buffer, start, end));
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	public static long parseLong(CharSequence chars, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+			negative = chars.charAt(i) == '-';
+			i++;
+		}
+		if (i == end || end - i > MAX_LONG_DIGITS) {
+			return Long.parseLong(chars.subSequence(start, end).toString());
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = chars.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return Long.parseLong(chars.subSequence(start, end).toString());
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	public static double parseDouble(ByteBuffer buffer, int start, int end) {
+		double value = parseDecimal(buffer, null, start, end);
+		if (Double.isNaN(value)) {
+			return Double.parseDouble(toString(buffer, start, end));
+		}
+		return value;
+	}
+
+	public static double parseDouble(CharSequence chars, int start, int end) {
+		double value = parseDecimal(null, chars, start, end);
+		if (Double.isNaN(value)) {
+			return Double.parseDouble(chars.subSequence(start, end).toString());
+		}
+		return value;
+	}
+
+	/**
+	 * Parses a plain decimal number with optional sign, fraction and exponent in a single pass.
+	 * Exactly one of buffer and chars is given.
+	 * @param buffer
+	 * @param chars
+	 * @param start
+	 * @param end
+	 * @return value or NaN if the number is malformed or cannot be converted exactly
+	 */
+	private static double parseDecimal(ByteBuffer buffer, CharSequence chars, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end) {
+			int c = charAt(buffer, chars, i);
+			if (c == '-' || c == '+') {
+				negative = c == '-';
+				i++;
+			}
+		}
+		boolean hasDigits = false;
+		boolean fraction = false;
+		long mantissa = 0;
+		int significantDigits = 0;
+		int scale = 0;
+		for (; i < end; i++) {
+			int c = charAt(buffer, chars, i);
+			int digit = c - '0';
+			if (digit >= 0 && digit <= 9) {
+				hasDigits = true;
+				// Leading zeros are not significant
+				if (mantissa != 0 || digit != 0) {
+					if (++significantDigits > MAX_LONG_DIGITS) {
+						return Double.NaN;
+					}
+					mantissa = mantissa * 10 + digit;
+				}
+				if (fraction) {
+					scale--;
+				}
+			} else if (c == '.' && !fraction) {
+				fraction = true;
+			} else {
+				break;
+			}
+		}
+		if (!hasDigits || mantissa > MAX_EXACT_MANTISSA) {
+			return Double.NaN;
+		}
+		int exponent = 0;
+		if (i < end) {
+			int c = charAt(buffer, chars, i++);
+			if (c != 'e' && c != 'E') {
+				return Double.NaN;
+			}
+			boolean exponentNegative = false;
+			if (i < end) {
+				c = charAt(buffer, chars, i);
+				if (c == '-' || c == '+') {
+					exponentNegative = c == '-';
+					i++;
+				}
+			}
+			if (i == end) {
+				return Double.NaN;
+			}
+			for (; i < end; i++) {
+				int digit = charAt(buffer, chars, i) - '0';
+				if (digit < 0 || digit > 9 || exponent >= 1000) {
+					return Double.NaN;
+				}
+				exponent = exponent * 10 + digit;
+			}
+			if (exponentNegative) {
+				exponent = -exponent;
+			}
+		}
+		int power = scale + exponent;
+		double value;
+		if (mantissa == 0) {
+			value = 0.0;
+		} else if (power == 0) {
+			value = mantissa;
+		} else if (power > 0 && power < POWERS_OF_TEN.length) {
+			value = mantissa * POWERS_OF_TEN[power];
+		} else if (power < 0 && -power < POWERS_OF_TEN.length) {
+			value = mantissa / POWERS_OF_TEN[-power];
+		} else {
+			return Double.NaN;
+		}
+		return negative ? -value : value;
+	}
+
+	private static int charAt(ByteBuffer buffer, CharSequence chars, int i) {
+		return buffer != null ? buffer.get(i) : chars.charAt(i);
+	}
+
+	private static String toString(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,72 @@
+package de.tum.bio.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Combines the progress of concurrently running parts of a job into a single value.
+ * Every part is weighted, e.g. by the size of the file it reads. Parts may be added while the job is running,
+ * and the combined progress never decreases, even if a reader resets its own progress after finishing.
+ *
+ */
+
+public final class ProgressAggregator {
+
+	private final DoubleConsumer sink;
+	private final List<Long> weights = new ArrayList<>();
+	private final List<Double> progresses = new ArrayList<>();
+	private long totalWeight = 0;
+	private double published = 0.0;
+
+	/**
+	 * @param sink receives the combined progress between 0 and 1
+	 */
+	public ProgressAggregator(DoubleConsumer sink) {
+		this.sink = sink;
+	}
+
+	/**
+	 * Adds a part of the job.
+	 * @param weight share of the part, at least 1
+	 * @return index of the part
+	 */
+	public synchronized int addPart(long weight) {
+		weights.add(Math.max(1, weight));
+		progresses.add(0.0);
+		totalWeight += Math.max(1, weight);
+		return weights.size() - 1;
+	}
+
+	/**
+	 * Reports the progress of a part. Values below the last reported value of the part are ignored.
+	 * @param part
+	 * @param progress between 0 and 1
+	 */
+	public synchronized void update(int part, double progress) {
+		if (progress > progresses.get(part)) {
+			progresses.set(part, Math.min(1.0, progress));
+			publish();
+		}
+	}
+
+	/**
+	 * Marks a part as finished.
+	 * @param part
+	 */
+	public void complete(int part) {
+		update(part, 1.0);
+	}
+
+	private void publish() {
+		double sum = 0.0;
+		for (int part = 0; part < weights.size(); part++) {
+			sum += weights.get(part) * progresses.get(part);
+		}
+		double progress = sum / totalWeight;
+		if (progress > published) {
+			published = progress;
+			sink.accept(progress);
+		}
+	}
+}
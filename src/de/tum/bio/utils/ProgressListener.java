@@ -0,0 +1,46 @@
+package de.tum.bio.utils;
+
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Receives the progress and status messages of a reader or loader. Listeners are called on the threads doing the work,
+ * so user interfaces have to pass the values on to their own thread, e.g. through a javafx.concurrent.Task.
+ *
+ */
+
+@FunctionalInterface
+public interface ProgressListener {
+
+	/**
+	 * @param progress between 0 and 1, or -1 if the progress is unknown
+	 */
+	void progressChanged(double progress);
+
+	/**
+	 * @param status message describing the current step, empty when a step has finished
+	 */
+	default void statusChanged(String status) {
+		// ignored by default
+	}
+
+	/**
+	 * Creates a listener from two callbacks.
+	 * @param progressConsumer
+	 * @param statusConsumer
+	 * @return listener
+	 */
+	static ProgressListener of(DoubleConsumer progressConsumer, Consumer<String> statusConsumer) {
+		return new ProgressListener() {
+			@Override
+			public void progressChanged(double progress) {
+				progressConsumer.accept(progress);
+			}
+
+			@Override
+			public void statusChanged(String status) {
+				statusConsumer.accept(status);
+			}
+		};
+	}
+}
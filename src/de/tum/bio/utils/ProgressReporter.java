@@ -0,0 +1,75 @@
+package de.tum.bio.utils;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ * Publishes the progress of a loop at a bounded rate.
+ * The loop reports its position on every iteration, but only a counter comparison is done until the position
+ * has advanced by a step. Then the progress is published if the last publication is at least 50 ms ago,
+ * so listeners like Task.updateProgress are not flooded with notifications.
+ *
+ */
+
+public final class ProgressReporter {
+
+	public static final long BYTE_STEP = 64 * 1024;
+	private static final long MAX_ITEM_STEPS = 1000;
+	private static final long INTERVAL = 50L * 1000 * 1000;
+
+	private final DoubleConsumer sink;
+	private final long total;
+	private final long step;
+	private long nextCheck;
+	private long lastPublication;
+
+	/**
+	 * @param sink receives the progress between 0 and 1
+	 * @param total position at which the work is complete
+	 * @param step minimum advance of the position before the clock is checked
+	 */
+	public ProgressReporter(DoubleConsumer sink, long total, long step) {
+		this.sink = sink;
+		this.total = total;
+		this.step = Math.max(1, step);
+		this.nextCheck = 0;
+		this.lastPublication = System.nanoTime() - INTERVAL;
+	}
+
+	/**
+	 * Creates a reporter for reading a file of the given size, checking the clock every 64 KB.
+	 * @param sink
+	 * @param size
+	 * @return reporter
+	 */
+	public static ProgressReporter forBytes(DoubleConsumer sink, long size) {
+		return new ProgressReporter(sink, size, BYTE_STEP);
+	}
+
+	/**
+	 * Creates a reporter for processing the given number of items, checking the clock at most 1000 times.
+	 * @param sink
+	 * @param count
+	 * @return reporter
+	 */
+	public static ProgressReporter forItems(DoubleConsumer sink, long count) {
+		return new ProgressReporter(sink, count, count / MAX_ITEM_STEPS);
+	}
+
+	/**
+	 * Reports the current position.
+	 * @param position
+	 * @return true if the progress was published, e.g. to update a status message at the same rate
+	 */
+	public boolean update(long position) {
+		if (position >= nextCheck) {
+			nextCheck = position + step;
+			long now = System.nanoTime();
+			if (now - lastPublication >= INTERVAL) {
+				lastPublication = now;
+				sink.accept(total > 0 ? Math.min(1.0, (double) position/total) : 0.0);
+				return true;
+			}
+		}
+		return false;
+	}
+}
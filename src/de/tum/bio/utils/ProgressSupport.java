@@ -0,0 +1,49 @@
+package de.tum.bio.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the progress and status of a reader or loader and passes changes on to its listeners.
+ * It is a listener itself, so the progress of a nested reader is forwarded by adding this object to it.
+ *
+ */
+
+public final class ProgressSupport implements ProgressListener {
+
+	private final List<ProgressListener> listeners = new CopyOnWriteArrayList<>();
+	private volatile double progress = 0.0;
+	private volatile String status = "";
+
+	public void addListener(ProgressListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(ProgressListener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public void progressChanged(double progress) {
+		this.progress = progress;
+		for (ProgressListener listener : listeners) {
+			listener.progressChanged(progress);
+		}
+	}
+
+	@Override
+	public void statusChanged(String status) {
+		this.status = status;
+		for (ProgressListener listener : listeners) {
+			listener.statusChanged(status);
+		}
+	}
+
+	public double getProgress() {
+		return progress;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+}
@@ -0,0 +1,104 @@
+package de.tum.bio.utils;
+
+/**
+ * A condition on a single column that a row has to fulfil to be read.
+ * Filters are evaluated on the raw field content before any value of the row is stored,
+ * so rejected rows never create Strings or row objects.
+ * If the column is not part of a file, the filter is ignored.
+ *
+ */
+
+public final class RowFilter {
+
+	private enum Comparison {
+		EQUAL_TO,
+		NOT_EQUAL_TO,
+		AT_LEAST,
+		AT_MOST;
+	}
+
+	private final String header;
+	private final Comparison comparison;
+	private final String value;
+	private final double threshold;
+
+	private RowFilter(String header, Comparison comparison, String value, double threshold) {
+		this.header = header;
+		this.comparison = comparison;
+		this.value = value;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Keeps rows whose field equals a value.
+	 * @param header
+	 * @param value
+	 * @return filter
+	 */
+	public static RowFilter equalTo(String header, String value) {
+		return new RowFilter(header, Comparison.EQUAL_TO, value, Double.NaN);
+	}
+
+	/**
+	 * Keeps rows whose field differs from a value, e.g. drops rows marked with "+" in the column "Reverse".
+	 * @param header
+	 * @param value
+	 * @return filter
+	 */
+	public static RowFilter notEqualTo(String header, String value) {
+		return new RowFilter(header, Comparison.NOT_EQUAL_TO, value, Double.NaN);
+	}
+
+	/**
+	 * Keeps rows whose numeric field is greater than or equal to a threshold. Empty fields are dropped.
+	 * @param header
+	 * @param threshold
+	 * @return filter
+	 */
+	public static RowFilter atLeast(String header, double threshold) {
+		return new RowFilter(header, Comparison.AT_LEAST, null, threshold);
+	}
+
+	/**
+	 * Keeps rows whose numeric field is less than or equal to a threshold. Empty fields are dropped.
+	 * @param header
+	 * @param threshold
+	 * @return filter
+	 */
+	public static RowFilter atMost(String header, double threshold) {
+		return new RowFilter(header, Comparison.AT_MOST, null, threshold);
+	}
+
+	public String getHeader() {
+		return header;
+	}
+
+	/**
+	 * Evaluates the filter on a projected field of the current row of a parser.
+	 * @param source
+	 * @param slot
+	 * @return true if the row is kept
+	 */
+	boolean accept(FieldSource source, int slot) {
+		switch (comparison) {
+			case EQUAL_TO:
+				return source.fieldEquals(slot, value);
+			case NOT_EQUAL_TO:
+				return !source.fieldEquals(slot, value);
+			default:
+				return !source.isEmpty(slot) && compare(source.getDouble(slot));
+		}
+	}
+
+	private boolean compare(double number) {
+		if (comparison == Comparison.AT_LEAST) {
+			return number >= threshold;
+		}
+		return number <= threshold;
+	}
+
+	@Override
+	public String toString() {
+		return header + " " + comparison + " " + ((value != null) ? value : String.valueOf(threshold));
+	}
+}
@@ -1,39 +1,70 @@
 package de.tum.bio.utils;
 
 import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 import de.tum.bio.proteomics.headers.TableHeaders;
-import javafx.beans.property.DoubleProperty;
-import javafx.beans.property.ReadOnlyDoubleProperty;
-import javafx.beans.property.ReadOnlyStringProperty;
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
 
 /**
- * This class is able to read diverse separated text files and to transform the content to nested hashmaps.
+ * This class is able to read diverse separated text files and to transform the content to nested hashmaps or columnar tables.
  * @author Matthias Stahl
  *
  */
 
 public final class SeparatedTextReader {
 	
-	DoubleProperty progressProperty = new SimpleDoubleProperty(0.0);
-	StringProperty statusProperty = new SimpleStringProperty("");
+	private static final long MIN_CHUNK_SIZE = 8L * 1024 * 1024;
+	private static final long PROGRESS_STEP = 1024 * 1024;
+	private static final long PROGRESS_INTERVAL = 50;
+	private static final int BATCH_ROWS = 64 * 1024;
+	private static final ForkJoinPool PARSER_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	
+	ProgressSupport progressSupport = new ProgressSupport();
+	
+	private boolean cacheEnabled = false;
 	
 	public SeparatedTextReader() {
 		// empty
 	}
 	
+	/**
+	 * Enables the binary cache of readTable(). Parsed tables are stored next to their source file
+	 * and reused as long as the source and the requested columns and filters are unchanged.
+	 * @param cacheEnabled
+	 */
+	public void setCacheEnabled(boolean cacheEnabled) {
+		this.cacheEnabled = cacheEnabled;
+	}
+	
+	public boolean isCacheEnabled() {
+		return cacheEnabled;
+	}
+	
 	/**
 	 * Reads the first line of a file.
 	 * @param filePath
@@ -61,6 +92,24 @@ public final class SeparatedTextReader {
 		return firstLineArray;
 	}
 	
+	/**
+	 * Resolves the storage types of the file headers of a header map. Headers without a type are stored as STRING.
+	 * @param headerMap
+	 * @param columnTypes
+	 * @return map of file headers and column types
+	 */
+	public static <T extends Enum<T> & TableHeaders> Map<String, ColumnType> resolveColumnTypes(Map<T, String> headerMap, Map<? extends TableHeaders, ColumnType> columnTypes) {
+		Map<String, ColumnType> result = new HashMap<>();
+		for (Entry<T, String> entry : headerMap.entrySet()) {
+			ColumnType columnType = columnTypes.get(entry.getKey());
+			if (columnType == null) {
+				columnType = ColumnType.STRING;
+			}
+			result.put(entry.getValue(), columnType);
+		}
+		return result;
+	}
+	
 	/**
 	 * Alternative reader taking a header map as input.
 	 * @param filePath
@@ -83,38 +132,417 @@ public final class SeparatedTextReader {
 	 */
 	public List<HashMap<String, String>> readFile(Path path, List<String> headerList, String separator) throws IOException {
 		List<HashMap<String, String>> resultList = new ArrayList<HashMap<String, String>>();
-		// Create path and check if respective file exists
+		readFile(path, headerList, separator, resultList::add);
+		return resultList;
+	}
+	
+	/**
+	 * Streaming reader taking a header map as input.
+	 * @param path
+	 * @param headerMap
+	 * @param separator
+	 * @param consumer
+	 * @throws IOException
+	 */
+	public <T extends Enum<T> & TableHeaders> void readFile(Path path, Map<T, String> headerMap, String separator, Consumer<HashMap<String, String>> consumer) throws IOException {
+		List<String> tmpList = new ArrayList<>(headerMap.values());
+		readFile(path, tmpList, separator, consumer);
+	}
+	
+	/**
+	 * Reads the specified columns of a file in a single pass and hands each row to the consumer as soon as it is parsed.
+	 * Progress is reported from the bytes consumed relative to the file size.
+	 * @param path
+	 * @param headerList
+	 * @param separator
+	 * @param consumer
+	 * @throws IOException
+	 */
+	public void readFile(Path path, List<String> headerList, String separator, Consumer<HashMap<String, String>> consumer) throws IOException {
+		readLines(path, new RowMapper(headerList, separator, consumer));
+	}
+	
+	/**
+	 * Reads the specified columns of a file into a columnar table.
+	 * @param path
+	 * @param columnTypes map of file headers and the types they are stored as
+	 * @param separator
+	 * @return table holding the columns in the order they appear in the file
+	 * @throws IOException
+	 */
+	public ColumnarTable readTable(Path path, Map<String, ColumnType> columnTypes, String separator) throws IOException {
+		return readTable(path, columnTypes, separator, new ArrayList<RowFilter>());
+	}
+	
+	/**
+	 * Reads the specified columns of the rows of a file that pass all filters into a columnar table.
+	 * Filters are evaluated before any value of a row is stored. Filters on columns missing in the file are ignored.
+	 * @param path
+	 * @param columnTypes map of file headers and the types they are stored as
+	 * @param separator
+	 * @param rowFilters
+	 * @return table holding the columns in the order they appear in the file
+	 * @throws IOException
+	 */
+	public ColumnarTable readTable(Path path, Map<String, ColumnType> columnTypes, String separator, List<RowFilter> rowFilters) throws IOException {
+		return readComputedTable(path, "", columnTypes, separator, rowFilters, () -> {
+			TableBuilder tableBuilder = new TableBuilder(columnTypes, separator, rowFilters);
+			if (separator.length() == 1 && separator.charAt(0) < 0x80) {
+				readMappedLines(path, (byte) separator.charAt(0), tableBuilder);
+			} else {
+				readLines(path, tableBuilder);
+			}
+			return tableBuilder.getTable();
+		});
+	}
+	
+	/**
+	 * Gets a table computed from the rows of a file, e.g. sums by key, from the binary cache if it is enabled and still valid.
+	 * Otherwise the table is computed and stored in the cache.
+	 * @param path file the table is computed from
+	 * @param name distinguishes the computation from others on the same columns, empty for the table of the rows themselves
+	 * @param columnTypes columns read by the computation
+	 * @param separator
+	 * @param rowFilters filters applied by the computation
+	 * @param computation
+	 * @return computed or cached table
+	 * @throws IOException
+	 */
+	public ColumnarTable readComputedTable(Path path, String name, Map<String, ColumnType> columnTypes, String separator, List<RowFilter> rowFilters,
+			IOFutures.IOSupplier<ColumnarTable> computation) throws IOException {
+		if (!cacheEnabled) {
+			return computation.get();
+		}
+		String cacheKey = name + TableCache.createKey(columnTypes, separator, rowFilters);
+		BasicFileAttributes attributes = TableCache.getAttributes(path);
+		setStatusProperty("Read cache of file " + path.getFileName() + "...");
+		ColumnarTable cachedTable = TableCache.load(path, cacheKey);
+		setStatusProperty("Done.");
+		if (cachedTable != null) {
+			return cachedTable;
+		}
+		ColumnarTable table = computation.get();
+		setStatusProperty("Write cache of file " + path.getFileName() + "...");
+		TableCache.store(path, attributes, cacheKey, table);
+		setStatusProperty("Done.");
+		return table;
+	}
+	
+	/**
+	 * Streams the specified columns of the rows of a file that pass all filters in batches, without holding the whole table.
+	 * Large files are split into line-aligned chunks that are parsed in parallel. Each chunk gets its own consumer, which
+	 * receives the batches of its chunk in file order from one thread at a time, so consumers can accumulate without locking
+	 * and are merged by the caller afterwards. The supplier is called on the calling thread once per chunk in file order.
+	 * The same table instance is passed for every batch of a chunk and cleared afterwards, so consumers must not keep it.
+	 * Codes of CATEGORY columns stay valid across the batches of a chunk, but not across chunks. Batches are not cached.
+	 * @param path
+	 * @param columnTypes map of file headers and the types they are stored as
+	 * @param separator
+	 * @param rowFilters
+	 * @param chunkConsumers creates the consumer of the batches of a chunk
+	 * @throws IOException
+	 */
+	public void readBatches(Path path, Map<String, ColumnType> columnTypes, String separator, List<RowFilter> rowFilters,
+			Supplier<? extends Consumer<ColumnarTable>> chunkConsumers) throws IOException {
+		TableBuilder tableBuilder = new TableBuilder(columnTypes, separator, rowFilters);
+		tableBuilder.chunkConsumers = chunkConsumers;
+		tableBuilder.batchConsumer = chunkConsumers.get();
+		if (separator.length() == 1 && separator.charAt(0) < 0x80) {
+			readMappedLines(path, (byte) separator.charAt(0), tableBuilder);
+		} else {
+			readLines(path, tableBuilder);
+		}
+	}
+	
+	/**
+	 * Indexes the offsets of the rows of a file that pass all filters by an integer column, without storing any other value.
+	 * Rows with an empty key are skipped. The rows of a key can be read later with readTableAt().
+	 * @param path
+	 * @param keyHeader header of the key column
+	 * @param separator single-byte separator
+	 * @param rowFilters
+	 * @return index of row offsets by key
+	 * @throws IOException
+	 */
+	public LineIndex indexLines(Path path, String keyHeader, String separator, List<RowFilter> rowFilters) throws IOException {
+		Map<String, ColumnType> columnTypes = new HashMap<>();
+		columnTypes.put(keyHeader, ColumnType.INT);
+		TableBuilder tableBuilder = new TableBuilder(columnTypes, separator, rowFilters);
+		setStatusProperty("Index file " + path.getFileName() + "...");
+		try (MappedTsvTokenizer tokenizer = new MappedTsvTokenizer(path, toByteSeparator(separator))) {
+			tableBuilder.handleHeader(tokenizer.readHeader());
+			if (tableBuilder.tableSlots.length == 0) {
+				throw new IOException("Column " + keyHeader + " not found in file " + path.getFileName() + ".");
+			}
+			tokenizer.setProjection(tableBuilder.getProjection());
+			int keySlot = tableBuilder.tableSlots[0];
+			int[] keys = new int[1024];
+			long[] offsets = new long[1024];
+			int lineCount = 0;
+			ProgressReporter progressReporter = ProgressReporter.forBytes(this::setProgressProperty, tokenizer.getSize());
+			while (tokenizer.nextRow()) {
+				if (tableBuilder.accepts(tokenizer) && !tokenizer.isEmpty(keySlot)) {
+					if (lineCount == keys.length) {
+						keys = Arrays.copyOf(keys, lineCount * 2);
+						offsets = Arrays.copyOf(offsets, lineCount * 2);
+					}
+					keys[lineCount] = tokenizer.getInt(keySlot);
+					offsets[lineCount] = tokenizer.getRowStart();
+					lineCount++;
+				}
+				progressReporter.update(tokenizer.getPosition());
+			}
+			return LineIndex.create(keys, offsets, lineCount);
+		} finally {
+			setProgressProperty(0.0);
+			setStatusProperty("Done.");
+		}
+	}
+	
+	/**
+	 * Reads the specified columns of single rows of a file, e.g. the rows of some keys of a LineIndex.
+	 * Only the pages holding the rows are touched. Rows are read in file order, not in the order of the offsets.
+	 * @param path
+	 * @param columnTypes map of file headers and the types they are stored as
+	 * @param separator single-byte separator
+	 * @param offsets start offsets of the rows
+	 * @return table holding the columns in the order they appear in the file
+	 * @throws IOException
+	 */
+	public ColumnarTable readTableAt(Path path, Map<String, ColumnType> columnTypes, String separator, long[] offsets) throws IOException {
+		TableBuilder tableBuilder = new TableBuilder(columnTypes, separator, new ArrayList<RowFilter>());
+		try (MappedTsvTokenizer tokenizer = new MappedTsvTokenizer(path, toByteSeparator(separator))) {
+			tableBuilder.handleHeader(tokenizer.readHeader());
+			tokenizer.setProjection(tableBuilder.getProjection());
+			long[] sortedOffsets = offsets.clone();
+			Arrays.sort(sortedOffsets);
+			for (long offset : sortedOffsets) {
+				tokenizer.seek(offset);
+				if (tokenizer.nextRow()) {
+					tableBuilder.handleRow(tokenizer);
+				}
+			}
+			tableBuilder.finish();
+			return tableBuilder.getTable();
+		}
+	}
+	
+	private static byte toByteSeparator(String separator) {
+		if (separator.length() != 1 || separator.charAt(0) >= 0x80) {
+			throw new IllegalArgumentException("Separator " + separator + " is not a single ASCII character.");
+		}
+		return (byte) separator.charAt(0);
+	}
+	
+	/**
+	 * Reads a file with a single-byte separator through a memory-mapped tokenizer. Only the wanted columns are tokenized and decoded.
+	 * Large files are split into line-aligned chunks that are parsed in parallel and appended to the table in file order,
+	 * or streamed to the batch consumers of the chunks.
+	 * @param path
+	 * @param separator
+	 * @param tableBuilder
+	 * @throws IOException
+	 */
+	private void readMappedLines(Path path, byte separator, TableBuilder tableBuilder) throws IOException {
+		MappedTsvTokenizer tokenizer = null;
+		try {
+			setStatusProperty("Open file " + path.getFileName() + "...");
+			tokenizer = new MappedTsvTokenizer(path, separator);
+			long fileSize = tokenizer.getSize();
+			String[] header = tokenizer.readHeader();
+			if (header.length > 0) {
+				tableBuilder.handleHeader(header);
+				tokenizer.setProjection(tableBuilder.getProjection());
+				long[] boundaries = splitIntoChunks(tokenizer, tokenizer.getPosition(), fileSize);
+				setStatusProperty("Read file " + path.getFileName() + "...");
+				if (boundaries.length > 2) {
+					readChunks(path, separator, tableBuilder, boundaries, fileSize);
+				} else {
+					// Go through each line in the text file
+					ProgressReporter progressReporter = ProgressReporter.forBytes(this::setProgressProperty, fileSize);
+					while (tokenizer.nextRow()) {
+						tableBuilder.handleRow(tokenizer);
+						progressReporter.update(tokenizer.getPosition());
+					}
+				}
+			}
+			tableBuilder.finish();
+		} catch (IOException e) {
+			throw e;
+		} finally {
+			setProgressProperty(0.0);
+			setStatusProperty("Done.");
+			if (tokenizer != null) {
+				try {
+					tokenizer.close();
+				} catch (IOException e) {
+					throw e;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Splits the data lines of a file into line-aligned chunks of at least MIN_CHUNK_SIZE bytes, one per parser thread.
+	 * @param tokenizer
+	 * @param dataStart offset of the first line after the header
+	 * @param fileSize
+	 * @return chunk boundaries including dataStart and fileSize
+	 * @throws IOException
+	 */
+	private static long[] splitIntoChunks(MappedTsvTokenizer tokenizer, long dataStart, long fileSize) throws IOException {
+		long dataSize = fileSize - dataStart;
+		int chunks = (int) Math.max(1, Math.min(PARSER_POOL.getParallelism(), dataSize / MIN_CHUNK_SIZE));
+		List<Long> boundaries = new ArrayList<>();
+		boundaries.add(dataStart);
+		for (int i = 1; i < chunks; i++) {
+			long boundary = tokenizer.findLineStart(dataStart + dataSize * i / chunks);
+			if (boundary > boundaries.get(boundaries.size() - 1) && boundary < fileSize) {
+				boundaries.add(boundary);
+			}
+		}
+		boundaries.add(fileSize);
+		long[] result = new long[boundaries.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = boundaries.get(i);
+		}
+		return result;
+	}
+	
+	/**
+	 * Parses the chunks of a file on the parser pool. The first chunk is read into the table of the given builder,
+	 * the others into copies which are appended in file order as soon as they are complete. Streamed chunks are
+	 * handed to their own batch consumers instead.
+	 * @param path
+	 * @param separator
+	 * @param tableBuilder
+	 * @param boundaries
+	 * @param fileSize
+	 * @throws IOException
+	 */
+	private void readChunks(Path path, byte separator, TableBuilder tableBuilder, long[] boundaries, long fileSize) throws IOException {
+		AtomicLong bytesRead = new AtomicLong(boundaries[0]);
+		List<ForkJoinTask<ColumnarTable>> tasks = new ArrayList<>();
+		for (int i = 0; i < boundaries.length - 1; i++) {
+			TableBuilder chunkBuilder = (i == 0) ? tableBuilder : tableBuilder.newChunk();
+			long start = boundaries[i];
+			long end = boundaries[i + 1];
+			tasks.add(PARSER_POOL.submit(() -> readChunk(path, separator, chunkBuilder, start, end, bytesRead)));
+		}
+		try {
+			for (int i = 0; i < tasks.size(); i++) {
+				ColumnarTable chunk = awaitChunk(tasks.get(i), bytesRead, fileSize);
+				if (i > 0 && tableBuilder.batchConsumer == null) {
+					tableBuilder.appendChunk(chunk);
+				}
+			}
+		} finally {
+			for (ForkJoinTask<ColumnarTable> task : tasks) {
+				task.cancel(true);
+			}
+		}
+	}
+	
+	/**
+	 * Waits for a chunk and updates the progress in the meantime.
+	 * @param task
+	 * @param bytesRead
+	 * @param fileSize
+	 * @return table of the chunk
+	 * @throws IOException
+	 */
+	private ColumnarTable awaitChunk(ForkJoinTask<ColumnarTable> task, AtomicLong bytesRead, long fileSize) throws IOException {
+		while (true) {
+			setProgressProperty((double) bytesRead.get()/fileSize);
+			try {
+				return task.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// Still running, update progress
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Reading was interrupted.");
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IOException(cause);
+			}
+		}
+	}
+	
+	/**
+	 * Parses the lines of one chunk of a file.
+	 * @param path
+	 * @param separator
+	 * @param chunkBuilder
+	 * @param start
+	 * @param end
+	 * @param bytesRead shared counter of the bytes parsed by all chunks
+	 * @return table of the chunk
+	 * @throws IOException
+	 */
+	private static ColumnarTable readChunk(Path path, byte separator, TableBuilder chunkBuilder, long start, long end, AtomicLong bytesRead) throws IOException {
+		MappedTsvTokenizer tokenizer = null;
+		try {
+			tokenizer = new MappedTsvTokenizer(path, separator, start, end);
+			tokenizer.setProjection(chunkBuilder.getProjection());
+			long reported = start;
+			while (tokenizer.nextRow()) {
+				chunkBuilder.handleRow(tokenizer);
+				if (tokenizer.getPosition() - reported >= PROGRESS_STEP) {
+					bytesRead.addAndGet(tokenizer.getPosition() - reported);
+					reported = tokenizer.getPosition();
+				}
+			}
+			chunkBuilder.finishBatches();
+			bytesRead.addAndGet(end - reported);
+		} catch (IOException e) {
+			throw e;
+		} finally {
+			if (tokenizer != null) {
+				try {
+					tokenizer.close();
+				} catch (IOException e) {
+					throw e;
+				}
+			}
+		}
+		return chunkBuilder.getTable();
+	}
+	
+	/**
+	 * Reads a file line by line. The first line is passed to the handler as header line.
+	 * @param path
+	 * @param lineHandler
+	 * @throws IOException
+	 */
+	private void readLines(Path path, LineHandler lineHandler) throws IOException {
 		BufferedReader reader = null;
 		try {
-			// Determine number of lines
 			setStatusProperty("Open file " + path.getFileName() + "...");
-			long numberOfLines = Files.lines(path).count();
-			reader = Files.newBufferedReader(path);
+			long fileSize = Files.size(path);
+			CountingInputStream inputStream = new CountingInputStream(Files.newInputStream(path));
+			reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
 			String line = null;
 			boolean firstRow = true;
-			Map<Integer, String> fileHeaderMap = new HashMap<>();
-			int[] headerNumberArray = null;
+			ProgressReporter progressReporter = ProgressReporter.forBytes(this::setProgressProperty, fileSize);
 			// Go through each line in the text file
-			long lineCount = 1;
 			setStatusProperty("Read file " + path.getFileName() + "...");
 			while ((line = reader.readLine()) != null) {
-				String[] lineArray = line.split(separator, -1);
 				if (firstRow) {
-					// It's the first row, so look for the headers
-					fileHeaderMap = generateHeaderIdMap(lineArray);
-					headerNumberArray = generateHeaderArray(fileHeaderMap, headerList);
+					lineHandler.handleHeader(line);
 					firstRow = false;
 				} else {
-					HashMap<String, String> currentEntryMap = new HashMap<>();
-					// Now, go through each header and grab content from line array
-					for (int index : headerNumberArray) {
-						currentEntryMap.put(fileHeaderMap.get(index), lineArray[index]);
-					}
-					resultList.add(currentEntryMap);
+					lineHandler.handleRow(line);
 				}
-				setProgressProperty((double) lineCount/numberOfLines);
-				lineCount++;
+				progressReporter.update(inputStream.getCount());
 			}
+			lineHandler.finish();
 		} catch (IOException e) {
 			throw e;
 		} finally {
@@ -128,7 +556,6 @@ public final class SeparatedTextReader {
 				}
 			}
 		}
-		return resultList;
 	}
 	
 	/**
@@ -152,31 +579,386 @@ public final class SeparatedTextReader {
 	 */
 	private int[] generateHeaderArray(Map<Integer, String> fileHeaderMap, List<String> headerList) {
 		int[] headerArray = new int[headerList.size()];
-		int headerCounter = 0;
 		int arrayCounter = 0;
-		for (Entry<Integer, String> entry : fileHeaderMap.entrySet()) {
-			if (headerList.contains(entry.getValue())) {
+		for (int headerCounter = 0; headerCounter < fileHeaderMap.size(); headerCounter++) {
+			if (headerList.contains(fileHeaderMap.get(headerCounter)) && arrayCounter < headerArray.length) {
 				headerArray[arrayCounter] = headerCounter;
 				arrayCounter++;
 			}
-			headerCounter++;
 		}
-		return headerArray;
+		return Arrays.copyOf(headerArray, arrayCounter);
 	}
 	
-	public ReadOnlyDoubleProperty getProgressProperty() {
-		return progressProperty;
+	/**
+	 * Splits a header line at a literal separator.
+	 * @param line
+	 * @param separator
+	 * @return array of all header entries
+	 */
+	private static String[] splitHeader(String line, String separator) {
+		return line.split(Pattern.quote(separator), -1);
 	}
 	
-	private void setProgressProperty(double value) {
-		progressProperty.set(value);
+	/**
+	 * Receives the lines of a file.
+	 */
+	private interface LineHandler {
+		void handleHeader(String line);
+		void handleRow(String line);
+		void finish();
+	}
+	
+	/**
+	 * Maps each row to a HashMap of the wanted headers and their values.
+	 */
+	private final class RowMapper implements LineHandler {
+		
+		private final List<String> headerList;
+		private final String separator;
+		private final Consumer<HashMap<String, String>> consumer;
+		private Map<Integer, String> fileHeaderMap;
+		private int[] headerNumberArray;
+		private FieldSplitter fieldSplitter;
+		
+		private RowMapper(List<String> headerList, String separator, Consumer<HashMap<String, String>> consumer) {
+			this.headerList = headerList;
+			this.separator = separator;
+			this.consumer = consumer;
+		}
+		
+		@Override
+		public void handleHeader(String line) {
+			// It's the first row, so look for the headers
+			fileHeaderMap = generateHeaderIdMap(splitHeader(line, separator));
+			headerNumberArray = generateHeaderArray(fileHeaderMap, headerList);
+			fieldSplitter = new FieldSplitter(separator, headerNumberArray);
+		}
+		
+		@Override
+		public void handleRow(String line) {
+			fieldSplitter.split(line);
+			HashMap<String, String> currentEntryMap = new HashMap<>();
+			// Now, go through each wanted header and grab its content
+			for (int i = 0; i < headerNumberArray.length; i++) {
+				if (!fieldSplitter.isMissing(i)) {
+					currentEntryMap.put(fileHeaderMap.get(headerNumberArray[i]), fieldSplitter.getString(i));
+				}
+			}
+			consumer.accept(currentEntryMap);
+		}
+		
+		@Override
+		public void finish() {
+			// nothing to flush
+		}
+	}
+	
+	/**
+	 * Fills a columnar table with the wanted columns of each row that passes the filters.
+	 */
+	private static final class TableBuilder implements LineHandler {
+		
+		private final Map<String, ColumnType> columnTypes;
+		private final String separator;
+		private final List<RowFilter> rowFilters;
+		private ColumnarTable table;
+		// Ascending file columns needed for the table and the filters
+		private int[] projection;
+		// Positions of the table columns and filter columns within the projection
+		private int[] tableSlots;
+		private int[] filterSlots;
+		private List<RowFilter> activeFilters;
+		private FieldSplitter fieldSplitter;
+		// Receives full batches instead of collecting all rows, if set
+		private Consumer<ColumnarTable> batchConsumer;
+		// Creates the batch consumers of further chunks
+		private Supplier<? extends Consumer<ColumnarTable>> chunkConsumers;
+		
+		private TableBuilder(Map<String, ColumnType> columnTypes, String separator, List<RowFilter> rowFilters) {
+			this.columnTypes = columnTypes;
+			this.separator = separator;
+			this.rowFilters = rowFilters;
+		}
+		
+		@Override
+		public void handleHeader(String line) {
+			handleHeader(splitHeader(line, separator));
+			fieldSplitter = new FieldSplitter(separator, projection);
+		}
+		
+		private void handleHeader(String[] lineArray) {
+			List<String> headers = new ArrayList<>();
+			List<ColumnType> types = new ArrayList<>();
+			List<Integer> tableColumns = new ArrayList<>();
+			for (int i = 0; i < lineArray.length; i++) {
+				if (columnTypes.containsKey(lineArray[i]) && !headers.contains(lineArray[i])) {
+					headers.add(lineArray[i]);
+					types.add(columnTypes.get(lineArray[i]));
+					tableColumns.add(i);
+				}
+			}
+			table = new ColumnarTable(headers, types);
+			List<String> fileHeaders = Arrays.asList(lineArray);
+			List<Integer> filterColumns = new ArrayList<>();
+			activeFilters = new ArrayList<>();
+			for (RowFilter rowFilter : rowFilters) {
+				int column = fileHeaders.indexOf(rowFilter.getHeader());
+				if (column >= 0) {
+					activeFilters.add(rowFilter);
+					filterColumns.add(column);
+				}
+			}
+			List<Integer> columns = new ArrayList<>(tableColumns);
+			for (Integer column : filterColumns) {
+				if (!columns.contains(column)) {
+					columns.add(column);
+				}
+			}
+			Collections.sort(columns);
+			projection = new int[columns.size()];
+			for (int i = 0; i < projection.length; i++) {
+				projection[i] = columns.get(i);
+			}
+			tableSlots = new int[tableColumns.size()];
+			for (int i = 0; i < tableSlots.length; i++) {
+				tableSlots[i] = columns.indexOf(tableColumns.get(i));
+			}
+			filterSlots = new int[filterColumns.size()];
+			for (int i = 0; i < filterSlots.length; i++) {
+				filterSlots[i] = columns.indexOf(filterColumns.get(i));
+			}
+		}
+		
+		@Override
+		public void handleRow(String line) {
+			fieldSplitter.split(line);
+			handleRow(fieldSplitter);
+		}
+		
+		private void handleRow(FieldSource fields) {
+			if (!accepts(fields)) {
+				return;
+			}
+			for (int column = 0; column < tableSlots.length; column++) {
+				table.append(column, fields, tableSlots[column]);
+			}
+			table.endRow();
+			if (batchConsumer != null && table.getRowCount() >= BATCH_ROWS) {
+				flushBatch();
+			}
+		}
+		
+		private boolean accepts(FieldSource fields) {
+			for (int i = 0; i < filterSlots.length; i++) {
+				if (!activeFilters.get(i).accept(fields, filterSlots[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		private void flushBatch() {
+			batchConsumer.accept(table);
+			table.clearRows();
+		}
+		
+		/**
+		 * Creates a builder for another chunk of the same file. Its table has the same columns but no rows.
+		 * @return new builder
+		 */
+		private TableBuilder newChunk() {
+			TableBuilder chunkBuilder = new TableBuilder(columnTypes, separator, rowFilters);
+			chunkBuilder.table = table.emptyCopy();
+			chunkBuilder.projection = projection;
+			chunkBuilder.tableSlots = tableSlots;
+			chunkBuilder.filterSlots = filterSlots;
+			chunkBuilder.activeFilters = activeFilters;
+			if (chunkConsumers != null) {
+				chunkBuilder.batchConsumer = chunkConsumers.get();
+			}
+			return chunkBuilder;
+		}
+		
+		private void appendChunk(ColumnarTable chunk) {
+			table.appendTable(chunk);
+		}
+		
+		private int[] getProjection() {
+			return projection;
+		}
+		
+		@Override
+		public void finish() {
+			if (batchConsumer != null) {
+				finishBatches();
+			} else if (table != null) {
+				table.trimToSize();
+			}
+		}
+		
+		/**
+		 * Hands the remaining rows to the batch consumer.
+		 */
+		private void finishBatches() {
+			if (table != null && batchConsumer != null && table.getRowCount() > 0) {
+				flushBatch();
+			}
+		}
+		
+		private ColumnarTable getTable() {
+			if (table == null) {
+				// Empty file
+				table = new ColumnarTable(new ArrayList<String>(), new ArrayList<ColumnType>());
+			}
+			return table;
+		}
 	}
 	
-	public ReadOnlyStringProperty getStatusProperty() {
-		return statusProperty;
+	/**
+	 * Locates the wanted fields of a line at a literal separator.
+	 * Scanning stops after the last wanted field. Strings are only created for fields requested as String,
+	 * numbers are parsed from the line directly.
+	 */
+	private static final class FieldSplitter implements FieldSource {
+		
+		private final String separator;
+		private final int[] columns;
+		private final int[] fieldStarts;
+		private final int[] fieldEnds;
+		private String line;
+		
+		/**
+		 * @param separator
+		 * @param columns wanted file columns in ascending order
+		 */
+		private FieldSplitter(String separator, int[] columns) {
+			this.separator = separator;
+			this.columns = columns;
+			this.fieldStarts = new int[columns.length];
+			this.fieldEnds = new int[columns.length];
+		}
+		
+		/**
+		 * Records the boundaries of the wanted fields of a line. Fields beyond the end of the line are missing.
+		 * @param line
+		 */
+		private void split(String line) {
+			this.line = line;
+			Arrays.fill(fieldStarts, -1);
+			int column = 0;
+			int start = 0;
+			int wanted = 0;
+			while (wanted < columns.length) {
+				int end = line.indexOf(separator, start);
+				if (column == columns[wanted]) {
+					fieldStarts[wanted] = start;
+					fieldEnds[wanted] = (end < 0) ? line.length() : end;
+					wanted++;
+				}
+				if (end < 0) {
+					break;
+				}
+				column++;
+				start = end + separator.length();
+			}
+		}
+		
+		private boolean isMissing(int slot) {
+			return fieldStarts[slot] < 0;
+		}
+		
+		@Override
+		public boolean isEmpty(int slot) {
+			return fieldStarts[slot] < 0 || fieldStarts[slot] == fieldEnds[slot];
+		}
+		
+		@Override
+		public String getString(int slot) {
+			if (fieldStarts[slot] < 0) {
+				return "";
+			}
+			return line.substring(fieldStarts[slot], fieldEnds[slot]);
+		}
+		
+		@Override
+		public boolean fieldEquals(int slot, String value) {
+			if (fieldStarts[slot] < 0) {
+				return value.isEmpty();
+			}
+			int length = fieldEnds[slot] - fieldStarts[slot];
+			return length == value.length() && line.regionMatches(fieldStarts[slot], value, 0, length);
+		}
+		
+		@Override
+		public int getInt(int slot) {
+			return isEmpty(slot) ? 0 : NumberParser.parseInt(line, fieldStarts[slot], fieldEnds[slot]);
+		}
+		
+		@Override
+		public long getLong(int slot) {
+			return isEmpty(slot) ? 0 : NumberParser.parseLong(line, fieldStarts[slot], fieldEnds[slot]);
+		}
+		
+		@Override
+		public double getDouble(int slot) {
+			return isEmpty(slot) ? Double.NaN : NumberParser.parseDouble(line, fieldStarts[slot], fieldEnds[slot]);
+		}
+	}
+	
+	/**
+	 * Input stream counting the bytes read from the underlying stream.
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+		
+		private long count = 0;
+		
+		private CountingInputStream(InputStream in) {
+			super(in);
+		}
+		
+		@Override
+		public int read() throws IOException {
+			int result = super.read();
+			if (result != -1) {
+				count++;
+			}
+			return result;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int result = super.read(b, off, len);
+			if (result != -1) {
+				count += result;
+			}
+			return result;
+		}
+		
+		@Override
+		public long skip(long n) throws IOException {
+			long result = super.skip(n);
+			count += result;
+			return result;
+		}
+		
+		private long getCount() {
+			return count;
+		}
+	}
+	
+	public void addProgressListener(ProgressListener listener) {
+		progressSupport.addListener(listener);
+	}
+	
+	public void removeProgressListener(ProgressListener listener) {
+		progressSupport.removeListener(listener);
+	}
+	
+	private void setProgressProperty(double value) {
+		progressSupport.progressChanged(value);
 	}
 	
 	private void setStatusProperty(String status) {
-		statusProperty.set(status);
+		progressSupport.statusChanged(status);
 	}
 }
@@ -0,0 +1,84 @@
+package de.tum.bio.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of the repeated values of a load, e.g. experiment names.
+ * Every distinct value is stored once and gets a small integer code in order of its first appearance,
+ * so codes can be used as array indices instead of String keys.
+ * Known values are looked up without locking, so readers of a batch can share one pool. Only new values are added
+ * under the lock of the pool.
+ *
+ */
+
+public final class StringPool {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+	// Replaced by a larger copy when full, a value and the size are updated before its code is published
+	private volatile String[] values = new String[INITIAL_CAPACITY];
+	private volatile int size = 0;
+
+	/**
+	 * Gets the code of a value and adds the value if it is new.
+	 * @param value
+	 * @return code
+	 */
+	public int getCode(String value) {
+		Integer code = codes.get(value);
+		if (code == null) {
+			return add(value);
+		}
+		return code;
+	}
+
+	private synchronized int add(String value) {
+		Integer code = codes.get(value);
+		if (code == null) {
+			code = size;
+			if (code == values.length) {
+				values = Arrays.copyOf(values, code * 2);
+			}
+			values[code] = value;
+			size = code + 1;
+			codes.put(value, code);
+		}
+		return code;
+	}
+
+	/**
+	 * Gets the code of a value without adding it.
+	 * @param value
+	 * @return code or -1 if the value is not part of the pool
+	 */
+	public int findCode(String value) {
+		Integer code = codes.get(value);
+		if (code == null) {
+			return -1;
+		}
+		return code;
+	}
+
+	/**
+	 * Gets the pooled instance of a value.
+	 * @param value
+	 * @return equal String held by the pool
+	 */
+	public String intern(String value) {
+		return getString(getCode(value));
+	}
+
+	public String getString(int code) {
+		if (code < 0 || code >= size) {
+			throw new IndexOutOfBoundsException("Code: " + code + ", Size: " + size);
+		}
+		return values[code];
+	}
+
+	public int size() {
+		return size;
+	}
+}
@@ -0,0 +1,190 @@
+package de.tum.bio.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Binary sidecar files holding parsed columnar tables.
+ * A cache file lies next to its source file and is only used while path, size and modification time of the source
+ * as well as the requested columns and filters are unchanged. The file name contains a hash of the key, so tables
+ * read differently from the same source, e.g. with other filters, do not replace each other. The cache is an optimization only: unreadable or
+ * stale cache files are ignored and failing writes, e.g. in read-only directories, leave the source untouched.
+ *
+ */
+
+final class TableCache {
+
+	private static final int MAGIC = 0x50444354;
+	private static final int VERSION = 1;
+	private static final String PREFIX = ".";
+	private static final String SUFFIX = ".cache";
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	private TableCache() {
+		// static use only
+	}
+
+	/**
+	 * Creates the key describing how a table was read.
+	 * @param columnTypes
+	 * @param separator
+	 * @param rowFilters
+	 * @return key
+	 */
+	static String createKey(Map<String, ColumnType> columnTypes, String separator, List<RowFilter> rowFilters) {
+		return new TreeMap<>(columnTypes).toString() + separator + rowFilters.toString();
+	}
+
+	/**
+	 * Reads the attributes of a source file that have to match its cache.
+	 * @param source
+	 * @return attributes
+	 * @throws IOException
+	 */
+	static BasicFileAttributes getAttributes(Path source) throws IOException {
+		return Files.readAttributes(source, BasicFileAttributes.class);
+	}
+
+	/**
+	 * Loads the cached table of a source file.
+	 * @param source
+	 * @param key
+	 * @return table or null if there is no valid cache
+	 */
+	static ColumnarTable load(Path source, String key) {
+		Path cachePath = getCachePath(source, key);
+		if (!Files.isRegularFile(cachePath)) {
+			return null;
+		}
+		DataInputStream input = null;
+		try {
+			BasicFileAttributes attributes = getAttributes(source);
+			long cacheSize = Files.size(cachePath);
+			CountingInputStream counter = new CountingInputStream(new BufferedInputStream(Files.newInputStream(cachePath), BUFFER_SIZE));
+			input = new DataInputStream(counter);
+			if (input.readInt() != MAGIC || input.readInt() != VERSION
+					|| !input.readUTF().equals(source.toAbsolutePath().toString())
+					|| input.readLong() != attributes.size()
+					|| input.readLong() != attributes.lastModifiedTime().toMillis()
+					|| !input.readUTF().equals(key)) {
+				return null;
+			}
+			return ColumnarTable.read(input, () -> cacheSize - counter.count);
+		} catch (IOException | RuntimeException e) {
+			// Corrupt or unreadable cache, parse the source instead
+			return null;
+		} finally {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stores a table as cache of a source file.
+	 * @param source
+	 * @param attributes attributes of the source before it was parsed
+	 * @param key
+	 * @param table
+	 */
+	static void store(Path source, BasicFileAttributes attributes, String key, ColumnarTable table) {
+		Path cachePath = getCachePath(source, key);
+		Path tmpPath = null;
+		DataOutputStream output = null;
+		try {
+			tmpPath = Files.createTempFile(cachePath.toAbsolutePath().getParent(), cachePath.getFileName().toString(), ".tmp");
+			output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath), BUFFER_SIZE));
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeUTF(source.toAbsolutePath().toString());
+			output.writeLong(attributes.size());
+			output.writeLong(attributes.lastModifiedTime().toMillis());
+			output.writeUTF(key);
+			table.write(output);
+			output.close();
+			output = null;
+			// Readers never see a partially written cache
+			Files.move(tmpPath, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			tmpPath = null;
+		} catch (IOException | RuntimeException e) {
+			// The cache is optional, e.g. the directory may be read-only
+		} finally {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+			if (tmpPath != null) {
+				try {
+					Files.deleteIfExists(tmpPath);
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the path of the hidden cache file next to a source file.
+	 * @param source
+	 * @param key
+	 * @return path of the cache file
+	 */
+	static Path getCachePath(Path source, String key) {
+		return source.resolveSibling(PREFIX + source.getFileName().toString() + "." + String.format("%08x", key.hashCode()) + SUFFIX);
+	}
+
+	/**
+	 * Counts the bytes read, so the remaining size of the cache file is known while it is read.
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+		private long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int value = in.read();
+			if (value >= 0) {
+				count++;
+			}
+			return value;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = in.read(b, off, len);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = in.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+}